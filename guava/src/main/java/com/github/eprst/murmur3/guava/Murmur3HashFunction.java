@@ -0,0 +1,132 @@
+package com.github.eprst.murmur3.guava;
+
+import com.github.eprst.murmur3.HashingSink128;
+import com.github.eprst.murmur3.MurmurHash3;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Guava {@link HashFunction} producing the same hashes as {@code Hashing.murmur3_128(seed)}, backed by
+ * {@link MurmurHash3} and {@link HashingSink128}.
+ * <p>
+ * Guava sign-extends negative seeds, unlike the reference implementation and {@code MurmurHash3} methods, so
+ * for negative seeds hashing goes through {@link HashingSink128#guavaCompatible(int)} sinks.
+ * <p>
+ * Strings with unpaired surrogates are hashed as UTF-8 like Guava does, with the surrogates replaced by {@code '?'}
+ * by {@code String.getBytes}, while well-formed ones are encoded without allocating.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public final class Murmur3HashFunction implements HashFunction {
+  private final int seed;
+
+  public Murmur3HashFunction(int seed) {
+    this.seed = seed;
+  }
+
+  @Override
+  public Hasher newHasher() {
+    return new Murmur3Hasher(seed);
+  }
+
+  @Override
+  public Hasher newHasher(int expectedInputSize) {
+    return newHasher();
+  }
+
+  @Override
+  public HashCode hashInt(int input) {
+    return toHashCode(HashingSink128.guavaCompatible(seed).putInt(input).finish());
+  }
+
+  @Override
+  public HashCode hashLong(long input) {
+    return toHashCode(HashingSink128.guavaCompatible(seed).putLong(input).finish());
+  }
+
+  @Override
+  public HashCode hashBytes(byte[] input) {
+    return hashBytes(input, 0, input.length);
+  }
+
+  @Override
+  public HashCode hashBytes(byte[] input, int off, int len) {
+    if (off < 0 || len < 0 || off + len > input.length) {
+      throw new IndexOutOfBoundsException("off: " + off + ", len: " + len + ", length: " + input.length);
+    }
+    if (seed < 0) {
+      return toHashCode(HashingSink128.guavaCompatible(seed).putBytes(input, off, len).finish());
+    }
+    MurmurHash3.HashCode128 result = new MurmurHash3.HashCode128();
+    MurmurHash3.murmurhash3_x64_128(input, off, len, seed, result);
+    return toHashCode(result);
+  }
+
+  @Override
+  public HashCode hashBytes(ByteBuffer input) {
+    return newHasher().putBytes(input).hash();
+  }
+
+  @Override
+  public HashCode hashUnencodedChars(CharSequence input) {
+    return toHashCode(HashingSink128.guavaCompatible(seed).putUnencodedChars(input).finish());
+  }
+
+  @Override
+  public HashCode hashString(CharSequence input, Charset charset) {
+    if (seed >= 0 && charset.equals(StandardCharsets.UTF_8) && isWellFormed(input)) {
+      MurmurHash3.HashCode128 result = new MurmurHash3.HashCode128();
+      MurmurHash3.murmurhash3_x64_128_safe_ascii(input, 0, input.length(), seed, null, result);
+      return toHashCode(result);
+    } else {
+      return newHasher().putString(input, charset).hash();
+    }
+  }
+
+  @Override
+  public <T> HashCode hashObject(T instance, Funnel<? super T> funnel) {
+    return newHasher().putObject(instance, funnel).hash();
+  }
+
+  @Override
+  public int bits() {
+    return 128;
+  }
+
+  /** Whether {@code s} has no unpaired surrogates, which the fast UTF-8 encoders don't replace */
+  static boolean isWellFormed(CharSequence s) {
+    for (int i = 0, n = s.length(); i < n; i++) {
+      char c = s.charAt(i);
+      if (Character.isSurrogate(c)) {
+        if (Character.isLowSurrogate(c) || ++i == n || !Character.isLowSurrogate(s.charAt(i))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  static HashCode toHashCode(MurmurHash3.HashCode128 hash) {
+    return HashCode.fromBytes(hash.getBytes());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Murmur3HashFunction && ((Murmur3HashFunction) o).seed == seed;
+  }
+
+  @Override
+  public int hashCode() {
+    return getClass().hashCode() ^ seed;
+  }
+
+  @Override
+  public String toString() {
+    return "Murmur3HashFunction(" + seed + ")";
+  }
+}
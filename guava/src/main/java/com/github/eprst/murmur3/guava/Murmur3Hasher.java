@@ -0,0 +1,128 @@
+package com.github.eprst.murmur3.guava;
+
+import com.github.eprst.murmur3.HashingSink128;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Guava {@link Hasher} on top of {@link HashingSink128}, see {@link Murmur3HashFunction}. Not thread-safe.
+ */
+@SuppressWarnings("UnstableApiUsage")
+final class Murmur3Hasher implements Hasher {
+  private final HashingSink128 sink;
+
+  Murmur3Hasher(int seed) {
+    sink = HashingSink128.guavaCompatible(seed);
+  }
+
+  @Override
+  public Hasher putByte(byte b) {
+    sink.putByte(b);
+    return this;
+  }
+
+  @Override
+  public Hasher putBytes(byte[] bytes) {
+    sink.putBytes(bytes);
+    return this;
+  }
+
+  @Override
+  public Hasher putBytes(byte[] bytes, int off, int len) {
+    if (off < 0 || len < 0 || off + len > bytes.length) {
+      throw new IndexOutOfBoundsException("off: " + off + ", len: " + len + ", length: " + bytes.length);
+    }
+    sink.putBytes(bytes, off, len);
+    return this;
+  }
+
+  @Override
+  public Hasher putBytes(ByteBuffer bytes) {
+    sink.putBytes(bytes);
+    return this;
+  }
+
+  @Override
+  public Hasher putShort(short s) {
+    sink.putShort(s);
+    return this;
+  }
+
+  @Override
+  public Hasher putInt(int i) {
+    sink.putInt(i);
+    return this;
+  }
+
+  @Override
+  public Hasher putLong(long l) {
+    sink.putLong(l);
+    return this;
+  }
+
+  @Override
+  public Hasher putFloat(float f) {
+    sink.putFloat(f);
+    return this;
+  }
+
+  @Override
+  public Hasher putDouble(double d) {
+    sink.putDouble(d);
+    return this;
+  }
+
+  @Override
+  public Hasher putBoolean(boolean b) {
+    sink.putByte(b ? (byte) 1 : (byte) 0);
+    return this;
+  }
+
+  @Override
+  public Hasher putChar(char c) {
+    sink.putChar(c);
+    return this;
+  }
+
+  @Override
+  public Hasher putUnencodedChars(CharSequence charSequence) {
+    sink.putUnencodedChars(charSequence);
+    return this;
+  }
+
+  @Override
+  public Hasher putString(CharSequence charSequence, Charset charset) {
+    if (charset.equals(StandardCharsets.UTF_8)) {
+      if (Murmur3HashFunction.isWellFormed(charSequence)) {
+        sink.putUtf8String(charSequence, 0, charSequence.length());
+      } else {
+        sink.putBytes(charSequence.toString().getBytes(charset));
+      }
+    } else {
+      sink.putString(charSequence, charset);
+    }
+    return this;
+  }
+
+  @Override
+  public <T> Hasher putObject(T instance, Funnel<? super T> funnel) {
+    funnel.funnel(instance, this);
+    return this;
+  }
+
+  @Override
+  public HashCode hash() {
+    return Murmur3HashFunction.toHashCode(sink.finish());
+  }
+
+  @Override
+  @Deprecated
+  public int hashCode() {
+    return hash().asInt();
+  }
+}
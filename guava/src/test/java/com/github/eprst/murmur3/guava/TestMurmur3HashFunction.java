@@ -0,0 +1,155 @@
+package com.github.eprst.murmur3.guava;
+
+import com.google.common.hash.Funnel;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+@SuppressWarnings("UnstableApiUsage")
+public class TestMurmur3HashFunction extends TestCase {
+  private final Random r = new Random();
+
+  public void testHashFunction() {
+    for (int i = 0; i < 1000; i++) {
+      int seed = r.nextInt();
+      HashFunction guava = Hashing.murmur3_128(seed);
+      HashFunction murmur = new Murmur3HashFunction(seed);
+
+      int n = r.nextInt();
+      long l = r.nextLong();
+      byte[] bytes = new byte[r.nextInt(100)];
+      r.nextBytes(bytes);
+      String s = randomString(r.nextInt(50));
+
+      assertEquals(guava.hashInt(n), murmur.hashInt(n));
+      assertEquals(guava.hashLong(l), murmur.hashLong(l));
+      assertEquals(guava.hashBytes(bytes), murmur.hashBytes(bytes));
+      assertEquals(guava.hashBytes(bytes, bytes.length / 3, bytes.length / 2),
+                   murmur.hashBytes(bytes, bytes.length / 3, bytes.length / 2));
+      assertEquals(guava.hashBytes(ByteBuffer.wrap(bytes)), murmur.hashBytes(ByteBuffer.wrap(bytes)));
+      ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+      direct.put(bytes).flip();
+      assertEquals(guava.hashBytes(ByteBuffer.wrap(bytes)), murmur.hashBytes(direct));
+      assertFalse(direct.hasRemaining());
+      assertEquals(guava.hashUnencodedChars(s), murmur.hashUnencodedChars(s));
+      assertEquals(guava.hashString(s, StandardCharsets.UTF_8), murmur.hashString(s, StandardCharsets.UTF_8));
+      assertEquals(guava.hashString(s, StandardCharsets.UTF_16LE), murmur.hashString(s, StandardCharsets.UTF_16LE));
+      assertEquals(128, murmur.bits());
+    }
+  }
+
+  public void testUnpairedSurrogates() {
+    String[] strings = {"\uD83D", "\uDE00", "a\uD83Db", "a\uDE00\uD83D", "\uD83D\uDE00\uD83D", "\uDE00\uD83D\uDE00x"};
+    for (int seed : new int[]{0, 42, -7}) {
+      HashFunction guava = Hashing.murmur3_128(seed);
+      HashFunction murmur = new Murmur3HashFunction(seed);
+      for (String s : strings) {
+        String str = randomString(r.nextInt(30)) + s + randomString(r.nextInt(30));
+        assertEquals(guava.hashString(str, StandardCharsets.UTF_8), murmur.hashString(str, StandardCharsets.UTF_8));
+        assertEquals(guava.newHasher().putString(str, StandardCharsets.UTF_8).hash(),
+                     murmur.newHasher().putString(str, StandardCharsets.UTF_8).hash());
+        assertFalse(Murmur3HashFunction.isWellFormed(str));
+      }
+    }
+    assertTrue(Murmur3HashFunction.isWellFormed("a\uD83D\uDE00b"));
+    assertTrue(Murmur3HashFunction.isWellFormed(""));
+  }
+
+  public void testHasher() {
+    Funnel<Person> funnel = (person, into) -> into.putString(person.name, StandardCharsets.UTF_8).putInt(person.age);
+    for (int i = 0; i < 1000; i++) {
+      int seed = r.nextInt();
+      Hasher guava = Hashing.murmur3_128(seed).newHasher();
+      Hasher murmur = new Murmur3HashFunction(seed).newHasher();
+      for (int j = r.nextInt(20); j >= 0; j--) {
+        put(guava, murmur);
+      }
+      assertEquals(guava.hash(), murmur.hash());
+    }
+
+    Person p = new Person(randomString(20), r.nextInt(100));
+    assertEquals(Hashing.murmur3_128(42).hashObject(p, funnel), new Murmur3HashFunction(42).hashObject(p, funnel));
+  }
+
+  private void put(Hasher guava, Hasher murmur) {
+    switch (r.nextInt(10)) {
+      case 0:
+        byte b = (byte) r.nextInt();
+        guava.putByte(b);
+        murmur.putByte(b);
+        break;
+      case 1:
+        byte[] bytes = new byte[r.nextInt(40)];
+        r.nextBytes(bytes);
+        guava.putBytes(bytes);
+        murmur.putBytes(ByteBuffer.wrap(bytes));
+        break;
+      case 2:
+        short s = (short) r.nextInt();
+        guava.putShort(s);
+        murmur.putShort(s);
+        break;
+      case 3:
+        int n = r.nextInt();
+        guava.putInt(n);
+        murmur.putInt(n);
+        break;
+      case 4:
+        long l = r.nextLong();
+        guava.putLong(l);
+        murmur.putLong(l);
+        break;
+      case 5:
+        float f = r.nextFloat();
+        guava.putFloat(f);
+        murmur.putFloat(f);
+        break;
+      case 6:
+        double d = r.nextDouble();
+        guava.putDouble(d);
+        murmur.putDouble(d);
+        break;
+      case 7:
+        boolean bool = r.nextBoolean();
+        guava.putBoolean(bool);
+        murmur.putBoolean(bool);
+        break;
+      case 8:
+        char c = (char) r.nextInt();
+        guava.putChar(c);
+        murmur.putChar(c);
+        break;
+      default:
+        String str = randomString(r.nextInt(30));
+        guava.putString(str, StandardCharsets.UTF_8);
+        murmur.putString(str, StandardCharsets.UTF_8);
+    }
+  }
+
+  private String randomString(int length) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      int codePoint;
+      do {
+        codePoint = r.nextInt(r.nextBoolean() ? 0x80 : Character.MAX_CODE_POINT + 1);
+      } while (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE);
+      sb.appendCodePoint(codePoint);
+    }
+    return sb.toString();
+  }
+
+  private static final class Person {
+    final String name;
+    final int age;
+
+    Person(String name, int age) {
+      this.name = name;
+      this.age = age;
+    }
+  }
+}
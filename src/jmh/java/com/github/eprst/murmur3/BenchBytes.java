@@ -0,0 +1,96 @@
+package com.github.eprst.murmur3;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+
+/**
+ * Byte array hashing throughput as a function of input size. Besides ops/s each benchmark reports
+ * {@code bytes} secondary result, which is hashing speed in bytes per second.
+ * <p>
+ * Sizes go from empty input to 1 MiB, {@code offset} places the data at unaligned positions in the array.
+ * {@link Tail} sweeps all 16 tail lengths of the x64_128 block loop on top of a fixed 64-byte prefix.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BenchBytes {
+
+  @State(Scope.Thread)
+  public static class Data {
+    @Param({"0", "1", "4", "8", "15", "16", "32", "64", "100", "128", "256", "512", "1024", "4096", "16384", "65536",
+            "262144", "1048576"})
+    int size;
+
+    @Param({"0", "1", "3"})
+    int offset;
+
+    byte[] bytes;
+    final MurmurHash3.HashCode128 hashCode = new MurmurHash3.HashCode128();
+
+    @Setup
+    public void setup() {
+      bytes = new byte[size + offset];
+      new Random(size).nextBytes(bytes);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TailData {
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15"})
+    int tail;
+
+    int size;
+    byte[] bytes;
+    final MurmurHash3.HashCode128 hashCode = new MurmurHash3.HashCode128();
+
+    @Setup
+    public void setup() {
+      size = 64 + tail;
+      bytes = new byte[size];
+      new Random(size).nextBytes(bytes);
+    }
+  }
+
+  /** Counts hashed bytes, reported by JMH as a rate next to the primary ops/s score */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Throughput {
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 x64_128(Data data, Throughput throughput) {
+    MurmurHash3.murmurhash3_x64_128(data.bytes, data.offset, data.size, 0, data.hashCode);
+    throughput.bytes += data.size;
+    return data.hashCode;
+  }
+
+  @Benchmark
+  public int x86_32(Data data, Throughput throughput) {
+    throughput.bytes += data.size;
+    return MurmurHash3.murmurhash3_x86_32(data.bytes, data.offset, data.size, 0);
+  }
+
+  @Warmup(iterations = 3, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  public static class Tail {
+    @Benchmark
+    public MurmurHash3.HashCode128 x64_128(TailData data, Throughput throughput) {
+      MurmurHash3.murmurhash3_x64_128(data.bytes, 0, data.size, 0, data.hashCode);
+      throughput.bytes += data.size;
+      return data.hashCode;
+    }
+
+    @Benchmark
+    public int x86_32(TailData data, Throughput throughput) {
+      throughput.bytes += data.size;
+      return MurmurHash3.murmurhash3_x86_32(data.bytes, 0, data.size, 0);
+    }
+  }
+}
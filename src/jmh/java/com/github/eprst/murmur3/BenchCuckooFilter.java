@@ -0,0 +1,77 @@
+package com.github.eprst.murmur3;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+
+/**
+ * {@link CuckooFilter} and {@link ConcurrentCuckooFilter} lookups, and put/delete pairs keeping the load constant,
+ * on filters with 2M slots filled to {@code loadFactor}. Kicks get longer and lookups of absent keys touch more
+ * non-empty slots as the load grows.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchCuckooFilter {
+  private static final int KEYS_MASK = (1 << 16) - 1;
+
+  @Param({"0.5", "0.8", "0.9", "0.95"})
+  double loadFactor;
+
+  CuckooFilter filter;
+  ConcurrentCuckooFilter concurrentFilter;
+  /** Added keys, the first {@code KEYS_MASK + 1} of which are deleted and re-added by {@code putDelete} */
+  long[] present;
+  long[] absent;
+  int next;
+
+  @Setup
+  public void setup() {
+    filter = new CuckooFilter(1 << 20, 0);
+    concurrentFilter = new ConcurrentCuckooFilter(1 << 20, 0);
+    int n = (int) (filter.capacity() * loadFactor);
+    Random random = new Random(0);
+    present = new long[n];
+    for (int i = 0; i < n; i++) {
+      present[i] = random.nextLong();
+      if (!filter.put(present[i]) || !concurrentFilter.put(present[i])) {
+        throw new IllegalStateException("Filter got full at load factor " + filter.loadFactor());
+      }
+    }
+    absent = new long[KEYS_MASK + 1];
+    for (int i = 0; i < absent.length; i++) {
+      absent[i] = random.nextLong();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class PerThread {
+    int i;
+  }
+
+  @Benchmark
+  public boolean positiveLookup(PerThread t) {
+    return filter.mightContain(present[t.i++ & KEYS_MASK]);
+  }
+
+  @Benchmark
+  public boolean negativeLookup(PerThread t) {
+    return filter.mightContain(absent[t.i++ & KEYS_MASK]);
+  }
+
+  @Benchmark
+  public boolean putDelete() {
+    int i = next++ & KEYS_MASK;
+    filter.delete(present[i]);
+    return filter.put(present[i]);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public boolean concurrentLookup(PerThread t) {
+    int i = t.i++;
+    long key = (i & 1) == 0 ? present[(i >>> 1) & KEYS_MASK] : absent[(i >>> 1) & KEYS_MASK];
+    return concurrentFilter.mightContain(key);
+  }
+}
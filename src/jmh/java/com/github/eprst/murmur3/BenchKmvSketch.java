@@ -0,0 +1,44 @@
+package com.github.eprst.murmur3;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Concurrent {@link KmvSketch} updates with distinct keys, against the same updates taking the sketch lock every
+ * time. After the first few thousand keys almost all updates are rejected by the threshold check.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchKmvSketch {
+  @Param({"1024", "16384"})
+  int k;
+
+  KmvSketch sketch;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    sketch = new KmvSketch(k, 0);
+  }
+
+  @State(Scope.Thread)
+  public static class PerThread {
+    long next = Thread.currentThread().getId() << 40;
+  }
+
+  @Benchmark
+  @Threads(4)
+  public KmvSketch update(PerThread t) {
+    sketch.update(t.next++);
+    return sketch;
+  }
+
+  @Benchmark
+  @Threads(4)
+  public KmvSketch lockedUpdate(PerThread t) {
+    synchronized (sketch) {
+      sketch.update(t.next++);
+    }
+    return sketch;
+  }
+}
@@ -0,0 +1,76 @@
+package com.github.eprst.murmur3;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+
+/**
+ * MinHash signature of a 1000-word document with 3-word shingles: {@link MinHash}, hashing every shingle once, against
+ * hashing every shingle with {@code numHashes} different seeds.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchMinHash {
+  static final int shingleSize = 3;
+
+  @Param({"16", "64", "256"})
+  int numHashes;
+
+  String text;
+  int[] shingleStarts;
+  int[] shingleEnds;
+  MinHash minHash;
+  long[] signature;
+  final MurmurHash3.HashCode128 hashCode = new MurmurHash3.HashCode128();
+  final byte[] buf19 = new byte[19];
+
+  @Setup
+  public void setup() {
+    RandomStringsGenerator rsg = new RandomStringsGenerator();
+    Random r = new Random(0);
+    int words = 1000;
+    StringBuilder sb = new StringBuilder();
+    int[] wordStarts = new int[words];
+    int[] wordEnds = new int[words];
+    for (int i = 0; i < words; i++) {
+      wordStarts[i] = sb.length();
+      sb.append(rsg.randomAscii(1 + r.nextInt(10)));
+      wordEnds[i] = sb.length();
+      sb.append(' ');
+    }
+    text = sb.toString();
+    shingleStarts = new int[words - shingleSize + 1];
+    shingleEnds = new int[words - shingleSize + 1];
+    for (int i = 0; i < shingleStarts.length; i++) {
+      shingleStarts[i] = wordStarts[i];
+      shingleEnds[i] = wordEnds[i + shingleSize - 1];
+    }
+    minHash = new MinHash(numHashes, 0);
+    signature = minHash.newSignature();
+  }
+
+  @Benchmark
+  public long[] oneHash() {
+    minHash.reset(signature);
+    minHash.addWordShingles(signature, text, shingleSize);
+    return signature;
+  }
+
+  @Benchmark
+  public long[] kSeeds() {
+    minHash.reset(signature);
+    for (int i = 0; i < shingleStarts.length; i++) {
+      int start = shingleStarts[i];
+      int len = shingleEnds[i] - start;
+      for (int k = 0; k < numHashes; k++) {
+        MurmurHash3.murmurhash3_x64_128_safe_ascii(text, start, len, k, buf19, hashCode);
+        if (hashCode.val1 < signature[k]) {
+          signature[k] = hashCode.val1;
+        }
+      }
+    }
+    return signature;
+  }
+}
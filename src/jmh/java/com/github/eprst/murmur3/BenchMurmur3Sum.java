@@ -0,0 +1,65 @@
+package com.github.eprst.murmur3;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * {@link Murmur3Sum} on a generated tree of 2000 small files (up to 16 KiB, below the memory mapping threshold)
+ * in 100 directories and two 64 MiB files, as a function of the number of threads. Files are in the page cache,
+ * so this measures hashing and file system overhead rather than disk speed.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchMurmur3Sum {
+  @Param({"1", "2", "4", "8"})
+  int threads;
+
+  Path root;
+  ForkJoinPool pool;
+  Murmur3Sum sum;
+
+  @Setup
+  public void setup() throws IOException {
+    Random r = new Random(0);
+    root = Files.createTempDirectory("bench-murmur3sum");
+    for (int i = 0; i < 2000; i++) {
+      Path dir = root.resolve("dir" + (i % 10)).resolve("dir" + (i % 100));
+      Files.createDirectories(dir);
+      byte[] b = new byte[r.nextInt(16384)];
+      r.nextBytes(b);
+      Files.write(dir.resolve("small" + i), b);
+    }
+    byte[] huge = new byte[64 << 20];
+    for (int i = 0; i < 2; i++) {
+      r.nextBytes(huge);
+      Files.write(root.resolve("huge" + i), huge);
+    }
+    pool = new ForkJoinPool(threads);
+    sum = new Murmur3Sum(0, pool);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    pool.shutdown();
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 tree() {
+    List<Murmur3Sum.Entry> entries = sum.hash(Collections.singletonList(root));
+    return sum.aggregate(entries);
+  }
+}
@@ -11,17 +11,19 @@ import org.openjdk.jmh.annotations.*;
 @Measurement(iterations = 10)
 public class BenchSink128 {
   static final int numHashables = 1000;
+  static final int hashableSize = 200;
 
   @State(Scope.Thread)
   public static class MyState {
     TestHashingSink.Hashable[] hashables;
     final MurmurHash3.HashCode128 hashCode = new MurmurHash3.HashCode128();
+    final HashingSink128 sink = new HashingSink128(0);
 
     public MyState () {
       hashables = new TestHashingSink.Hashable[numHashables];
       RandomHashableGenerator g = new RandomHashableGenerator();
       for (int i = 0; i < numHashables; i++) {
-        hashables[i] = g.randomHashable();
+        hashables[i] = g.randomHashable(hashableSize);
       }
     }
   }
@@ -43,4 +45,13 @@ public class BenchSink128 {
     }
     s.finish(state.hashCode);
   }
+
+  @Benchmark
+  public void hashingSinkReused(MyState state) {
+    HashingSink128 s = state.sink;
+    for (TestHashingSink.Hashable hashable : state.hashables) {
+      hashable.sendToHashing(s);
+    }
+    s.finish(state.hashCode);
+  }
 }
@@ -0,0 +1,72 @@
+package com.github.eprst.murmur3;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * {@link SpaceSaving} against exact counting in a {@code HashMap} on Zipf distributed streams of 1M distinct
+ * string keys. Lower exponents mean flatter distributions, more evictions and a larger exact map.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchSpaceSaving {
+  private static final int KEYS = 1 << 20;
+  private static final int STREAM_MASK = (1 << 20) - 1;
+
+  @Param({"0.8", "1.0", "1.2"})
+  double exponent;
+
+  @Param({"100", "10000"})
+  int k;
+
+  String[] stream;
+
+  @Setup
+  public void setup() {
+    double[] cdf = new double[KEYS];
+    double sum = 0;
+    for (int i = 0; i < KEYS; i++) {
+      sum += 1 / Math.pow(i + 1, exponent);
+      cdf[i] = sum;
+    }
+    String[] keys = new String[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      keys[i] = "key-" + i;
+    }
+    Random random = new Random(0);
+    stream = new String[STREAM_MASK + 1];
+    for (int i = 0; i < stream.length; i++) {
+      int j = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+      stream[i] = keys[Math.min(KEYS - 1, j < 0 ? -j - 1 : j)];
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class PerThread {
+    SpaceSaving spaceSaving;
+    HashMap<String, long[]> exact;
+    int i;
+
+    @Setup(Level.Iteration)
+    public void setup(BenchSpaceSaving bench) {
+      spaceSaving = new SpaceSaving(bench.k, 0);
+      exact = new HashMap<>();
+    }
+  }
+
+  @Benchmark
+  public int spaceSaving(PerThread t) {
+    t.spaceSaving.add(stream[t.i++ & STREAM_MASK]);
+    return t.spaceSaving.size();
+  }
+
+  @Benchmark
+  public long exactHashMap(PerThread t) {
+    return ++t.exact.computeIfAbsent(stream[t.i++ & STREAM_MASK], key -> new long[1])[0];
+  }
+}
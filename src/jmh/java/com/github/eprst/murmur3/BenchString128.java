@@ -74,6 +74,20 @@ public class BenchString128 {
     }
   }
 
+  @Benchmark
+  public void murmurAsciiSafeString(MyState state) {
+    for (String s : ASCII_STRINGS) {
+      MurmurHash3.murmurhash3_x64_128_safe_ascii(s, 0, s.length(), 0, state.buf19, state.hashCode);
+    }
+  }
+
+  @Benchmark
+  public void murmurUnicodeSafeString(MyState state) {
+    for (String s : UNICODE_STRINGS) {
+      MurmurHash3.murmurhash3_x64_128_safe_ascii(s, 0, s.length(), 0, state.buf19, state.hashCode);
+    }
+  }
+
   // code used to generate random strings data
 
   public static void main(String[] args) {
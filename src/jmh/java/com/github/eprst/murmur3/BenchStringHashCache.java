@@ -0,0 +1,74 @@
+package com.github.eprst.murmur3;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+
+/**
+ * {@link StringHashCache} against plain hashing of 64-char strings picked uniformly from a working set of
+ * {@code keys} instances, for several cache capacities. {@code hits} and {@code misses} secondary results
+ * give the hit rate achieved at each point.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchStringHashCache {
+  @Param({"1024", "16384"})
+  int capacity;
+
+  @Param({"256", "4096", "65536"})
+  int keys;
+
+  String[] strings;
+  StringHashCache cache;
+
+  @Setup
+  public void setup() {
+    RandomStringsGenerator rsg = new RandomStringsGenerator();
+    strings = new String[keys];
+    for (int i = 0; i < keys; i++) {
+      strings[i] = rsg.randomAscii(64);
+    }
+    cache = new StringHashCache(0, capacity);
+  }
+
+  @State(Scope.Thread)
+  public static class PerThread {
+    final MurmurHash3.HashCode128 hashCode = new MurmurHash3.HashCode128();
+    final Random random = new Random();
+  }
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class HitRate {
+    public long hits;
+    public long misses;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      hits = 0;
+      misses = 0;
+    }
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 uncached(PerThread t) {
+    String s = strings[t.random.nextInt(keys)];
+    MurmurHash3.murmurhash3_x64_128_safe_ascii(s, 0, s.length(), 0, null, t.hashCode);
+    return t.hashCode;
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 cached(PerThread t, HitRate hitRate) {
+    String s = strings[t.random.nextInt(keys)];
+    if (cache.get(s, t.hashCode)) {
+      hitRate.hits++;
+    } else {
+      hitRate.misses++;
+      MurmurHash3.murmurhash3_x64_128_safe_ascii(s, 0, s.length(), 0, null, t.hashCode);
+      cache.put(s, t.hashCode);
+    }
+    return t.hashCode;
+  }
+}
@@ -0,0 +1,126 @@
+package com.github.eprst.murmur3;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Every public hashing entry point run with 1, 2, 4 and all available threads, meant to be run with
+ * the GC profiler ({@code ./gradlew jmhScaling}) to check allocation rates and scaling. Each thread
+ * works with its own output holders and sinks, input data is shared.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class BenchThreads {
+  static final int numInputs = 128;
+  static final int inputLength = 64;
+
+  @State(Scope.Benchmark)
+  public static class Inputs {
+    final String[] ascii = new String[numInputs];
+    final String[] unicode = new String[numInputs];
+    final byte[][] bytes = new byte[numInputs][];
+
+    @Setup
+    public void setup() {
+      RandomStringsGenerator rsg = new RandomStringsGenerator();
+      for (int i = 0; i < numInputs; i++) {
+        ascii[i] = rsg.randomAscii(inputLength);
+        unicode[i] = rsg.randomUnicode(inputLength);
+        bytes[i] = unicode[i].getBytes(StandardCharsets.UTF_8);
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class PerThread {
+    final MurmurHash3.HashCode128 hashCode = new MurmurHash3.HashCode128();
+    final byte[] buf19 = new byte[19];
+    final HashingSink128 sink = new HashingSink128(0);
+    int next;
+
+    int next() {
+      return next = (next + 1) & (numInputs - 1);
+    }
+  }
+
+  @Benchmark
+  public int x86_32Bytes(Inputs in, PerThread t) {
+    byte[] b = in.bytes[t.next()];
+    return MurmurHash3.murmurhash3_x86_32(b, 0, b.length, 0);
+  }
+
+  @Benchmark
+  public int x86_32String(Inputs in, PerThread t) {
+    String s = in.unicode[t.next()];
+    return MurmurHash3.murmurhash3_x86_32(s, 0, s.length(), 0);
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 x64_128Bytes(Inputs in, PerThread t) {
+    byte[] b = in.bytes[t.next()];
+    MurmurHash3.murmurhash3_x64_128(b, 0, b.length, 0, t.hashCode);
+    return t.hashCode;
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 x64_128String(Inputs in, PerThread t) {
+    String s = in.unicode[t.next()];
+    MurmurHash3.murmurhash3_x64_128(s, 0, s.length(), 0, t.buf19, t.hashCode);
+    return t.hashCode;
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 x64_128StringNoBuffer(Inputs in, PerThread t) {
+    String s = in.unicode[t.next()];
+    MurmurHash3.murmurhash3_x64_128(s, 0, s.length(), 0, null, t.hashCode);
+    return t.hashCode;
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 x64_128Ascii(Inputs in, PerThread t) {
+    String s = in.ascii[t.next()];
+    MurmurHash3.murmurhash3_x64_128_ascii(s, 0, s.length(), 0, t.hashCode);
+    return t.hashCode;
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 x64_128SafeAscii(Inputs in, PerThread t) {
+    String s = in.ascii[t.next()];
+    MurmurHash3.murmurhash3_x64_128_safe_ascii(s, 0, s.length(), 0, t.buf19, t.hashCode);
+    return t.hashCode;
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 sinkNew(Inputs in, PerThread t) {
+    String s = in.unicode[t.next()];
+    HashingSink128 sink = new HashingSink128(0);
+    sink.putUtf8String(s, 0, s.length()).putInt(s.length());
+    return sink.finish();
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 sinkReused(Inputs in, PerThread t) {
+    String s = in.unicode[t.next()];
+    t.sink.putUtf8String(s, 0, s.length()).putInt(s.length());
+    t.sink.finish(t.hashCode);
+    return t.hashCode;
+  }
+
+  @Threads(1)
+  public static class Threads1 extends BenchThreads {
+  }
+
+  @Threads(2)
+  public static class Threads2 extends BenchThreads {
+  }
+
+  @Threads(4)
+  public static class Threads4 extends BenchThreads {
+  }
+
+  @Threads(Threads.MAX)
+  public static class ThreadsMax extends BenchThreads {
+  }
+}
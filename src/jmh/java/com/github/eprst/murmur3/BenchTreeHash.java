@@ -0,0 +1,63 @@
+package com.github.eprst.murmur3;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * {@link TreeHasher} throughput on a 64 MiB input as a function of the number of threads, with plain
+ * {@code murmurhash3_x64_128} of the same input as a single-threaded reference. The {@code bytes} secondary result
+ * is hashing speed in bytes per second.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchTreeHash {
+  static final int size = 64 << 20;
+
+  @Param({"1", "2", "4", "8"})
+  int threads;
+
+  byte[] bytes;
+  ByteBuffer direct;
+  ForkJoinPool pool;
+  TreeHasher hasher;
+  final MurmurHash3.HashCode128 hashCode = new MurmurHash3.HashCode128();
+
+  @Setup
+  public void setup() {
+    bytes = new byte[size];
+    new Random(size).nextBytes(bytes);
+    direct = ByteBuffer.allocateDirect(size);
+    direct.put(bytes).flip();
+    pool = new ForkJoinPool(threads);
+    hasher = new TreeHasher(0, TreeHasher.DEFAULT_LEAF_SIZE, pool);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 treeBytes(BenchBytes.Throughput throughput) {
+    throughput.bytes += size;
+    return hasher.hash(bytes);
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 treeDirect(BenchBytes.Throughput throughput) {
+    throughput.bytes += size;
+    return hasher.hash(direct);
+  }
+
+  @Benchmark
+  public MurmurHash3.HashCode128 x64_128(BenchBytes.Throughput throughput) {
+    MurmurHash3.murmurhash3_x64_128(bytes, 0, size, 0, hashCode);
+    throughput.bytes += size;
+    return hashCode;
+  }
+}
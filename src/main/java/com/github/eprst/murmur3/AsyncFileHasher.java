@@ -0,0 +1,245 @@
+package com.github.eprst.murmur3;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * Hashes files with {@link HashingSink128} using {@link AsynchronousFileChannel}, overlapping reads with hashing.
+ * Result is the same as {@code murmurhash3_x64_128} of the whole file contents.
+ * <p>
+ * File is read into a ring of reusable direct buffers: while one buffer is being hashed, reads into the others
+ * are in flight. Hashing happens in the channel's completion handler threads, so no thread ever blocks waiting for
+ * I/O. Apart from the returned future and the result, nothing is allocated per buffer.
+ * <p>
+ * Instance hashes one file at a time, starting a new hash before the previous one completes throws
+ * {@link IllegalStateException}. It can be reused afterwards, including from the future's callbacks.
+ */
+public final class AsyncFileHasher {
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+  public static final int DEFAULT_BUFFERS = 4;
+
+  private final int bufferSize;
+  private final Slot[] slots;
+  private final HashingSink128 sink;
+
+  private final AtomicBoolean busy = new AtomicBoolean();
+  /** Number of pending {@link #drain} requests, only the thread incrementing it from zero drains */
+  final AtomicInteger wip = new AtomicInteger();
+
+  // per-file state, accessed by the draining thread only
+  private AsynchronousFileChannel channel;
+  private boolean closeChannel;
+  private CompletableFuture<HashCode128> result;
+  private long size;
+  private long nextReadPosition;
+  private int head;
+  private int inFlight;
+  private Throwable error;
+
+  /** Creates a hasher with 4 buffers of 1 MiB */
+  public AsyncFileHasher(int seed) {
+    this(seed, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+  }
+
+  /**
+   * @param seed seed
+   * @param bufferSize buffer size, must be a positive multiple of 16
+   * @param buffers number of buffers, at least 2
+   */
+  public AsyncFileHasher(int seed, int bufferSize, int buffers) {
+    if (bufferSize <= 0 || (bufferSize & 15) != 0) {
+      throw new IllegalArgumentException("Buffer size must be a positive multiple of 16: " + bufferSize);
+    }
+    if (buffers < 2) {
+      throw new IllegalArgumentException("At least 2 buffers required: " + buffers);
+    }
+    this.bufferSize = bufferSize;
+    this.sink = new HashingSink128(seed);
+    this.slots = new Slot[buffers];
+    for (int i = 0; i < buffers; i++) {
+      slots[i] = new Slot(ByteBuffer.allocateDirect(bufferSize));
+    }
+  }
+
+  /** Opens {@code file}, hashes its contents and closes it */
+  public CompletableFuture<HashCode128> hash(Path file) {
+    AsynchronousFileChannel ch;
+    try {
+      ch = AsynchronousFileChannel.open(file, StandardOpenOption.READ);
+    } catch (IOException | RuntimeException e) {
+      CompletableFuture<HashCode128> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+    return start(ch, true);
+  }
+
+  /** Hashes {@code channel} contents from the beginning, the channel is left open */
+  public CompletableFuture<HashCode128> hash(AsynchronousFileChannel channel) {
+    return start(channel, false);
+  }
+
+  private CompletableFuture<HashCode128> start(AsynchronousFileChannel ch, boolean close) {
+    if (!busy.compareAndSet(false, true)) {
+      if (close) {
+        closeQuietly(ch);
+      }
+      throw new IllegalStateException("Already hashing another file");
+    }
+    CompletableFuture<HashCode128> future = new CompletableFuture<>();
+    channel = ch;
+    closeChannel = close;
+    result = future;
+    nextReadPosition = 0;
+    head = 0;
+    inFlight = 0;
+    error = null;
+    sink.reset();
+    try {
+      size = ch.size();
+    } catch (IOException e) {
+      error = e;
+      complete();
+      return future;
+    }
+
+    // hold off draining until all initial reads are issued
+    wip.incrementAndGet();
+    for (Slot slot : slots) {
+      if (nextReadPosition >= size) {
+        break;
+      }
+      startRead(slot);
+    }
+    if (inFlight == 0) {
+      // empty file
+      wip.set(0);
+      complete();
+    } else {
+      drainLoop(1);
+    }
+    return future;
+  }
+
+  private void startRead(Slot slot) {
+    slot.position = nextReadPosition;
+    slot.buffer.clear().limit((int) Math.min(bufferSize, size - nextReadPosition));
+    nextReadPosition += bufferSize;
+    inFlight++;
+    slot.read();
+  }
+
+  private void drain() {
+    if (wip.getAndIncrement() == 0) {
+      drainLoop(1);
+    }
+  }
+
+  /** Hashes completed buffers in file order and reissues reads into them */
+  private void drainLoop(int missed) {
+    do {
+      Slot slot;
+      while (inFlight > 0 && (slot = slots[head]).ready) {
+        slot.ready = false;
+        inFlight--;
+        head = head + 1 == slots.length ? 0 : head + 1;
+        if (error == null && slot.error != null) {
+          error = slot.error;
+        }
+        if (error == null) {
+          slot.buffer.flip();
+          sink.putBytes(slot.buffer);
+          if (nextReadPosition < size) {
+            startRead(slot);
+          }
+        }
+        if (inFlight == 0) {
+          // all reads are done, nothing else can touch the state
+          wip.set(0);
+          complete();
+          return;
+        }
+      }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void complete() {
+    CompletableFuture<HashCode128> future = result;
+    Throwable e = error;
+    HashCode128 hash = null;
+    if (e == null) {
+      hash = new HashCode128();
+      sink.finish(hash);
+    }
+    if (closeChannel) {
+      closeQuietly(channel);
+    }
+    channel = null;
+    result = null;
+    error = null;
+    busy.set(false);
+    if (e == null) {
+      future.complete(hash);
+    } else {
+      future.completeExceptionally(e);
+    }
+  }
+
+  private static void closeQuietly(AsynchronousFileChannel ch) {
+    try {
+      ch.close();
+    } catch (IOException ignored) {
+    }
+  }
+
+  /** Ring buffer slot, also serves as completion handler for reads into its buffer */
+  private final class Slot implements CompletionHandler<Integer, Void> {
+    final ByteBuffer buffer;
+    long position;
+    Throwable error;
+    volatile boolean ready;
+
+    Slot(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    void read() {
+      error = null;
+      try {
+        channel.read(buffer, position + buffer.position(), null, this);
+      } catch (RuntimeException e) {
+        failed(e, null);
+      }
+    }
+
+    @Override
+    public void completed(Integer bytesRead, Void attachment) {
+      if (bytesRead < 0) {
+        failed(new EOFException("File is shorter than " + size + " bytes"), null);
+      } else if (buffer.hasRemaining()) {
+        read(); // short read
+      } else {
+        ready = true;
+        drain();
+      }
+    }
+
+    @Override
+    public void failed(Throwable e, Void attachment) {
+      error = e;
+      ready = true;
+      drain();
+    }
+  }
+}
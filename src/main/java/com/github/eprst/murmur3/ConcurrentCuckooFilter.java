@@ -0,0 +1,270 @@
+package com.github.eprst.murmur3;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * Thread-safe {@link CuckooFilter} with the same layout and hashing, guarded by striped locks.
+ * <p>
+ * Keys are hashed outside of locks. Lookups, deletions and insertions into non-full buckets lock the stripes of
+ * the key's two buckets only. Insertions kicking fingerprints around, and changes of the fingerprint kept aside
+ * when the filter is full, lock all stripes.
+ */
+public final class ConcurrentCuckooFilter {
+  private final CuckooFilter filter;
+  private final ReentrantLock[] locks;
+  private final int lockMask;
+  private final LongAdder size = new LongAdder();
+  private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+  private static final class Scratch {
+    final HashCode128 hash = new HashCode128();
+    final byte[] buf19 = new byte[19];
+  }
+
+  /** Creates a filter with 64 lock stripes */
+  public ConcurrentCuckooFilter(long capacity, int seed) {
+    this(capacity, seed, 64);
+  }
+
+  /**
+   * @param capacity expected maximum number of keys
+   * @param seed hash seed
+   * @param concurrencyLevel number of lock stripes, rounded up to a power of two
+   */
+  public ConcurrentCuckooFilter(long capacity, int seed, int concurrencyLevel) {
+    if (concurrencyLevel <= 0 || concurrencyLevel > 1 << 16) {
+      throw new IllegalArgumentException("Concurrency level must be between 1 and 2^16: " + concurrencyLevel);
+    }
+    filter = new CuckooFilter(capacity, seed);
+    int stripes = Math.min(filter.buckets.length, Integer.highestOneBit(concurrencyLevel - 1) << 1);
+    locks = new ReentrantLock[Math.max(1, stripes)];
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new ReentrantLock();
+    }
+    lockMask = locks.length - 1;
+  }
+
+  public int seed() {
+    return filter.seed;
+  }
+
+  public long size() {
+    return size.sum();
+  }
+
+  public long capacity() {
+    return filter.capacity();
+  }
+
+  public double loadFactor() {
+    return (double) size() / capacity();
+  }
+
+  public boolean put(CharSequence key) {
+    HashCode128 hash = hashUtf8(key);
+    return put(hash.val1, hash.val2);
+  }
+
+  public boolean put(byte[] key, int offset, int len) {
+    HashCode128 hash = hashBytes(key, offset, len);
+    return put(hash.val1, hash.val2);
+  }
+
+  public boolean put(byte[] key) {
+    return put(key, 0, key.length);
+  }
+
+  public boolean put(long key) {
+    HashCode128 hash = hashLong(key);
+    return put(hash.val1, hash.val2);
+  }
+
+  public boolean mightContain(CharSequence key) {
+    HashCode128 hash = hashUtf8(key);
+    return mightContain(hash.val1, hash.val2);
+  }
+
+  public boolean mightContain(byte[] key, int offset, int len) {
+    HashCode128 hash = hashBytes(key, offset, len);
+    return mightContain(hash.val1, hash.val2);
+  }
+
+  public boolean mightContain(byte[] key) {
+    return mightContain(key, 0, key.length);
+  }
+
+  public boolean mightContain(long key) {
+    HashCode128 hash = hashLong(key);
+    return mightContain(hash.val1, hash.val2);
+  }
+
+  public boolean delete(CharSequence key) {
+    HashCode128 hash = hashUtf8(key);
+    return delete(hash.val1, hash.val2);
+  }
+
+  public boolean delete(byte[] key, int offset, int len) {
+    HashCode128 hash = hashBytes(key, offset, len);
+    return delete(hash.val1, hash.val2);
+  }
+
+  public boolean delete(byte[] key) {
+    return delete(key, 0, key.length);
+  }
+
+  public boolean delete(long key) {
+    HashCode128 hash = hashLong(key);
+    return delete(hash.val1, hash.val2);
+  }
+
+  /** Adds a key by its {@code murmurhash3_x64_128} hash computed with {@link #seed()} */
+  public boolean put(long h1, long h2) {
+    int fp = CuckooFilter.fingerprint(h2);
+    int i1 = CuckooFilter.bucket(h1, filter.bucketMask);
+    int i2 = CuckooFilter.altBucket(i1, fp, filter.bucketMask);
+    lock(i1, i2);
+    try {
+      if (filter.insert(i1, fp) || filter.insert(i2, fp)) {
+        size.increment();
+        return true;
+      }
+    } finally {
+      unlock(i1, i2);
+    }
+
+    lockAll();
+    try {
+      if (filter.insert(i1, fp) || filter.insert(i2, fp)) {
+        size.increment();
+        return true;
+      }
+      if (filter.victimFingerprint != 0) {
+        return false;
+      }
+      filter.kick(i1, fp);
+      size.increment();
+      return true;
+    } finally {
+      unlockAll();
+    }
+  }
+
+  public boolean mightContain(long h1, long h2) {
+    int fp = CuckooFilter.fingerprint(h2);
+    int i1 = CuckooFilter.bucket(h1, filter.bucketMask);
+    int i2 = CuckooFilter.altBucket(i1, fp, filter.bucketMask);
+    lock(i1, i2);
+    try {
+      // the fingerprint kept aside only changes under all locks, so it's safe to read here
+      return filter.mightContain(h1, h2);
+    } finally {
+      unlock(i1, i2);
+    }
+  }
+
+  public boolean delete(long h1, long h2) {
+    int fp = CuckooFilter.fingerprint(h2);
+    int i1 = CuckooFilter.bucket(h1, filter.bucketMask);
+    int i2 = CuckooFilter.altBucket(i1, fp, filter.bucketMask);
+    boolean removed;
+    boolean hasVictim;
+    lock(i1, i2);
+    try {
+      removed = filter.remove(i1, fp) || filter.remove(i2, fp);
+      if (removed) {
+        size.decrement();
+      }
+      hasVictim = filter.victimFingerprint != 0;
+    } finally {
+      unlock(i1, i2);
+    }
+    if (!hasVictim) {
+      return removed;
+    }
+
+    lockAll();
+    try {
+      if (!removed) {
+        // another delete could have moved the fingerprint from the stash to a bucket while nothing was locked
+        if (filter.remove(i1, fp) || filter.remove(i2, fp)) {
+          size.decrement();
+        } else if (filter.victimFingerprint == fp && (filter.victimBucket == i1 || filter.victimBucket == i2)) {
+          filter.victimFingerprint = 0;
+          size.decrement();
+          return true;
+        } else {
+          return false;
+        }
+      }
+      filter.reinsertVictim();
+      return true;
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /** Consistent copy of the filter, taken under all locks */
+  CuckooFilter snapshot() {
+    lockAll();
+    try {
+      CuckooFilter copy = new CuckooFilter(filter.buckets.clone(), filter.seed);
+      copy.size = size.sum();
+      copy.victimFingerprint = filter.victimFingerprint;
+      copy.victimBucket = filter.victimBucket;
+      return copy;
+    } finally {
+      unlockAll();
+    }
+  }
+
+  private void lock(int bucket1, int bucket2) {
+    int s1 = bucket1 & lockMask;
+    int s2 = bucket2 & lockMask;
+    locks[Math.min(s1, s2)].lock();
+    if (s1 != s2) {
+      locks[Math.max(s1, s2)].lock();
+    }
+  }
+
+  private void unlock(int bucket1, int bucket2) {
+    int s1 = bucket1 & lockMask;
+    int s2 = bucket2 & lockMask;
+    if (s1 != s2) {
+      locks[Math.max(s1, s2)].unlock();
+    }
+    locks[Math.min(s1, s2)].unlock();
+  }
+
+  private void lockAll() {
+    for (ReentrantLock lock : locks) {
+      lock.lock();
+    }
+  }
+
+  private void unlockAll() {
+    for (int i = locks.length - 1; i >= 0; i--) {
+      locks[i].unlock();
+    }
+  }
+
+  private HashCode128 hashUtf8(CharSequence key) {
+    Scratch s = scratch.get();
+    CuckooFilter.hashUtf8(key, filter.seed, s.buf19, s.hash);
+    return s.hash;
+  }
+
+  private HashCode128 hashBytes(byte[] key, int offset, int len) {
+    HashCode128 hash = scratch.get().hash;
+    MurmurHash3.murmurhash3_x64_128(key, offset, len, filter.seed, hash);
+    return hash;
+  }
+
+  private HashCode128 hashLong(long key) {
+    HashCode128 hash = scratch.get().hash;
+    MurmurHash3.murmurhash3_x64_128(key, filter.seed, hash);
+    return hash;
+  }
+}
@@ -0,0 +1,263 @@
+package com.github.eprst.murmur3;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * Cuckoo filter (Fan, Andersen, Kaminsky, Mitzenmacher, "Cuckoo Filter: Practically Better Than Bloom"):
+ * approximate set membership with deletion.
+ * <p>
+ * Every key is hashed once with {@code murmurhash3_x64_128}: the low half selects the primary bucket and the top
+ * 16 bits of the high half are the fingerprint. The alternate bucket is the primary one XOR-ed with a hash of
+ * the fingerprint. Buckets have 4 slots of 16-bit fingerprints packed into a single {@code long}, so a lookup reads
+ * two longs. The false positive rate is about {@code 8 / 2^16} (0.012%) at full load.
+ * <p>
+ * Inserting into a full pair of buckets kicks fingerprints to their alternate buckets, at most {@value #MAX_KICKS}
+ * times. If that doesn't help, the last kicked out fingerprint is kept aside and the filter is full: further
+ * {@code put} calls fail until something is deleted. Filters hold about 95% of their bucket capacity before that.
+ * <p>
+ * Deleting a key which was never added can remove another key with the same fingerprint and bucket, so only
+ * delete keys known to be present. Not thread-safe, see {@link ConcurrentCuckooFilter}.
+ */
+public final class CuckooFilter {
+  static final int SLOTS = 4;
+  static final int MAX_KICKS = 500;
+
+  private static final long LANES_LOW = 0x0001000100010001L;
+  private static final long LANES_HIGH = 0x8000800080008000L;
+
+  final int seed;
+  final long[] buckets;
+  final int bucketMask;
+  long size;
+  // fingerprint which didn't fit, 0 if none
+  int victimFingerprint;
+  int victimBucket;
+
+  private long random = 0x9E3779B97F4A7C15L;
+  private final HashCode128 hash = new HashCode128();
+  private final byte[] buf19 = new byte[19];
+
+  /**
+   * @param capacity expected maximum number of keys
+   * @param seed hash seed
+   */
+  public CuckooFilter(long capacity, int seed) {
+    this(new long[numBuckets(capacity)], seed);
+  }
+
+  CuckooFilter(long[] buckets, int seed) {
+    this.seed = seed;
+    this.buckets = buckets;
+    this.bucketMask = buckets.length - 1;
+  }
+
+  static int numBuckets(long capacity) {
+    if (capacity <= 0 || capacity > (1L << 30) * SLOTS * 95 / 100) {
+      throw new IllegalArgumentException("Capacity must be between 1 and about 4 billion: " + capacity);
+    }
+    long minBuckets = (capacity * 100 / 95 + SLOTS - 1) / SLOTS;
+    return (int) Math.max(1, Long.highestOneBit(minBuckets - 1) << 1);
+  }
+
+  public int seed() {
+    return seed;
+  }
+
+  /** Number of keys in the filter */
+  public long size() {
+    return size;
+  }
+
+  /** Number of fingerprint slots */
+  public long capacity() {
+    return (long) buckets.length * SLOTS;
+  }
+
+  public double loadFactor() {
+    return (double) size / capacity();
+  }
+
+  /** @return {@code false} if the filter is full */
+  public boolean put(CharSequence key) {
+    hashUtf8(key, seed, buf19, hash);
+    return put(hash.val1, hash.val2);
+  }
+
+  public boolean put(byte[] key, int offset, int len) {
+    MurmurHash3.murmurhash3_x64_128(key, offset, len, seed, hash);
+    return put(hash.val1, hash.val2);
+  }
+
+  public boolean put(byte[] key) {
+    return put(key, 0, key.length);
+  }
+
+  public boolean put(long key) {
+    MurmurHash3.murmurhash3_x64_128(key, seed, hash);
+    return put(hash.val1, hash.val2);
+  }
+
+  public boolean mightContain(CharSequence key) {
+    hashUtf8(key, seed, buf19, hash);
+    return mightContain(hash.val1, hash.val2);
+  }
+
+  public boolean mightContain(byte[] key, int offset, int len) {
+    MurmurHash3.murmurhash3_x64_128(key, offset, len, seed, hash);
+    return mightContain(hash.val1, hash.val2);
+  }
+
+  public boolean mightContain(byte[] key) {
+    return mightContain(key, 0, key.length);
+  }
+
+  public boolean mightContain(long key) {
+    MurmurHash3.murmurhash3_x64_128(key, seed, hash);
+    return mightContain(hash.val1, hash.val2);
+  }
+
+  /** @return {@code true} if the key's fingerprint was found and removed */
+  public boolean delete(CharSequence key) {
+    hashUtf8(key, seed, buf19, hash);
+    return delete(hash.val1, hash.val2);
+  }
+
+  public boolean delete(byte[] key, int offset, int len) {
+    MurmurHash3.murmurhash3_x64_128(key, offset, len, seed, hash);
+    return delete(hash.val1, hash.val2);
+  }
+
+  public boolean delete(byte[] key) {
+    return delete(key, 0, key.length);
+  }
+
+  public boolean delete(long key) {
+    MurmurHash3.murmurhash3_x64_128(key, seed, hash);
+    return delete(hash.val1, hash.val2);
+  }
+
+  /** Adds a key by its {@code murmurhash3_x64_128} hash computed with {@link #seed()} */
+  public boolean put(long h1, long h2) {
+    int fp = fingerprint(h2);
+    int i1 = bucket(h1, bucketMask);
+    if (insert(i1, fp) || insert(altBucket(i1, fp, bucketMask), fp)) {
+      size++;
+      return true;
+    }
+    if (victimFingerprint != 0) {
+      return false;
+    }
+    kick(i1, fp);
+    size++;
+    return true;
+  }
+
+  public boolean mightContain(long h1, long h2) {
+    int fp = fingerprint(h2);
+    int i1 = bucket(h1, bucketMask);
+    int i2 = altBucket(i1, fp, bucketMask);
+    return contains(buckets[i1], fp) || contains(buckets[i2], fp) ||
+           (victimFingerprint == fp && (victimBucket == i1 || victimBucket == i2));
+  }
+
+  public boolean delete(long h1, long h2) {
+    int fp = fingerprint(h2);
+    int i1 = bucket(h1, bucketMask);
+    int i2 = altBucket(i1, fp, bucketMask);
+    if (remove(i1, fp) || remove(i2, fp)) {
+      size--;
+      reinsertVictim();
+      return true;
+    }
+    if (victimFingerprint == fp && (victimBucket == i1 || victimBucket == i2)) {
+      victimFingerprint = 0;
+      size--;
+      return true;
+    }
+    return false;
+  }
+
+  /** Moves fingerprint kept aside back into the table if there's room for it now */
+  void reinsertVictim() {
+    int fp = victimFingerprint;
+    if (fp != 0) {
+      int i = victimBucket;
+      if (insert(i, fp) || insert(altBucket(i, fp, bucketMask), fp)) {
+        victimFingerprint = 0;
+      }
+    }
+  }
+
+  /** Random walk moving fingerprints to their alternate buckets until a free slot is found */
+  void kick(int bucket, int fp) {
+    if ((nextRandom() & 1) != 0) {
+      bucket = altBucket(bucket, fp, bucketMask);
+    }
+    for (int n = 0; n < MAX_KICKS; n++) {
+      int shift = (int) (nextRandom() >>> 62) << 4;
+      long b = buckets[bucket];
+      int kicked = (int) (b >>> shift) & 0xFFFF;
+      buckets[bucket] = b & ~(0xFFFFL << shift) | (long) fp << shift;
+      fp = kicked;
+      bucket = altBucket(bucket, fp, bucketMask);
+      if (insert(bucket, fp)) {
+        return;
+      }
+    }
+    victimFingerprint = fp;
+    victimBucket = bucket;
+  }
+
+  private long nextRandom() {
+    random ^= random << 13;
+    random ^= random >>> 7;
+    random ^= random << 17;
+    return random;
+  }
+
+  boolean insert(int bucket, int fp) {
+    long b = buckets[bucket];
+    for (int shift = 0; shift < 64; shift += 16) {
+      if (((b >>> shift) & 0xFFFF) == 0) {
+        buckets[bucket] = b | (long) fp << shift;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  boolean remove(int bucket, int fp) {
+    long b = buckets[bucket];
+    for (int shift = 0; shift < 64; shift += 16) {
+      if (((b >>> shift) & 0xFFFF) == fp) {
+        buckets[bucket] = b & ~(0xFFFFL << shift);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Checks if any of the 4 16-bit lanes of {@code bucket} equals {@code fp} */
+  static boolean contains(long bucket, int fp) {
+    long x = bucket ^ (fp * LANES_LOW);
+    return ((x - LANES_LOW) & ~x & LANES_HIGH) != 0;
+  }
+
+  /** Non-zero 16-bit fingerprint from the top bits of the high half */
+  static int fingerprint(long h2) {
+    int fp = (int) (h2 >>> 48);
+    return fp == 0 ? 1 : fp;
+  }
+
+  static int bucket(long h1, int bucketMask) {
+    return (int) h1 & bucketMask;
+  }
+
+  static int altBucket(int bucket, int fp, int bucketMask) {
+    return (bucket ^ (fp * 0x5bd1e995)) & bucketMask;
+  }
+
+  static void hashUtf8(CharSequence key, int seed, byte[] buf19, HashCode128 out) {
+    MurmurHash3.murmurhash3_x64_128_safe_ascii(key, 0, key.length(), seed, buf19, out);
+  }
+}
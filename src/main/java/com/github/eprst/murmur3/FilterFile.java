@@ -0,0 +1,221 @@
+package com.github.eprst.murmur3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * On-disk format of hash-based filters, which can be memory-mapped and queried in place instead of being rebuilt
+ * or loaded on startup.
+ * <p>
+ * Version 1 layout, all numbers little-endian:
+ * <pre>
+ *  0  int   magic, "MM3F"
+ *  4  int   format version
+ *  8  int   filter type, {@value #TYPE_CUCKOO} for {@link CuckooFilter} buckets
+ * 12  int   hash family, {@value #HASH_MURMUR3_X64_128} for murmurhash3_x64_128
+ * 16  int   hash seed
+ * 20  int   fingerprint kept aside by a full cuckoo filter, 0 if none
+ * 24  int   bucket of that fingerprint
+ * 28  int   reserved, 0
+ * 32  long  number of keys
+ * 40  long  number of data longs
+ * 48  long  checksum, val1 of murmurhash3_x64_128 with seed 0 of bytes 0-47 followed by the data
+ * 56  long  checksum, val2
+ * 64        data: cuckoo buckets as longs
+ * </pre>
+ * Files are written to a temporary file which then replaces the target atomically, so processes which have
+ * the previous version mapped keep reading it intact.
+ */
+public final class FilterFile {
+  public static final int VERSION = 1;
+  public static final int TYPE_CUCKOO = 1;
+  public static final int HASH_MURMUR3_X64_128 = 1;
+
+  static final int MAGIC = 0x46334D4D;
+  static final int HEADER_SIZE = 64;
+  static final int CHECKSUM_OFFSET = 48;
+  /** Data is mapped in segments of 2^27 longs, 1 GiB */
+  static final int SEGMENT_BITS = 27;
+
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+  private FilterFile() {}
+
+  /** Writes {@code filter} to {@code file}, replacing it if it exists */
+  public static void write(CuckooFilter filter, Path file) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(MAGIC)
+          .putInt(VERSION)
+          .putInt(TYPE_CUCKOO)
+          .putInt(HASH_MURMUR3_X64_128)
+          .putInt(filter.seed)
+          .putInt(filter.victimFingerprint)
+          .putInt(filter.victimBucket)
+          .putInt(0)
+          .putLong(filter.size)
+          .putLong(filter.buckets.length);
+    HashCode128 checksum = checksumSink(header).putLongs(filter.buckets, 0, filter.buckets.length).finish();
+    header.putLong(checksum.val1).putLong(checksum.val2);
+    header.flip();
+
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeFully(channel, header);
+      ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      LongBuffer longs = buffer.asLongBuffer();
+      for (int i = 0; i < filter.buckets.length; i += longs.capacity()) {
+        int n = Math.min(longs.capacity(), filter.buckets.length - i);
+        longs.clear();
+        longs.put(filter.buckets, i, n);
+        buffer.clear().limit(n * 8);
+        writeFully(channel, buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Writes a consistent snapshot of {@code filter} to {@code file}, replacing it if it exists */
+  public static void write(ConcurrentCuckooFilter filter, Path file) throws IOException {
+    write(filter.snapshot(), file);
+  }
+
+  /**
+   * Builds a filter of {@code keys} and writes it to {@code file}
+   *
+   * @throws IllegalStateException if the keys don't fit in a filter of the given capacity
+   */
+  public static CuckooFilter build(Iterable<? extends CharSequence> keys, long capacity, int seed, Path file)
+      throws IOException {
+    CuckooFilter filter = new CuckooFilter(capacity, seed);
+    for (CharSequence key : keys) {
+      if (!filter.put(key)) {
+        throw new IllegalStateException("Filter got full after " + filter.size() + " keys");
+      }
+    }
+    write(filter, file);
+    return filter;
+  }
+
+  /** Maps filter file after verifying its checksum */
+  public static MappedCuckooFilter map(Path file) throws IOException {
+    return map(file, true);
+  }
+
+  /**
+   * Maps filter file for querying in place. Without checksum verification nothing is read until the first lookup,
+   * otherwise the whole file is read once.
+   */
+  public static MappedCuckooFilter map(Path file, boolean verifyChecksum) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = readHeader(channel, file);
+      long dataLongs = header.getLong(40);
+      ByteBuffer[] segments = new ByteBuffer[(int) ((dataLongs + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+      LongBuffer[] buckets = new LongBuffer[segments.length];
+      for (int i = 0; i < segments.length; i++) {
+        long first = (long) i << SEGMENT_BITS;
+        long longs = Math.min(1L << SEGMENT_BITS, dataLongs - first);
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * 8, longs * 8)
+                             .order(ByteOrder.LITTLE_ENDIAN);
+        buckets[i] = segments[i].asLongBuffer();
+      }
+      if (verifyChecksum) {
+        HashingSink128 sink = checksumSink(header);
+        for (ByteBuffer segment : segments) {
+          sink.putBytes(segment.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+        }
+        verifyChecksum(sink, header, file);
+      }
+      return new MappedCuckooFilter(buckets, (int) dataLongs, header.getInt(16), header.getLong(32),
+                                    header.getInt(20), header.getInt(24));
+    }
+  }
+
+  /** Reads filter file into a new modifiable filter, verifying its checksum */
+  public static CuckooFilter read(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = readHeader(channel, file);
+      long[] data = new long[(int) header.getLong(40)];
+      ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      for (int i = 0; i < data.length; ) {
+        int n = Math.min(WRITE_BUFFER_SIZE / 8, data.length - i);
+        buffer.clear().limit(n * 8);
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer) < 0) {
+            throw new IOException("Unexpected end of file: " + file);
+          }
+        }
+        buffer.flip();
+        buffer.asLongBuffer().get(data, i, n);
+        i += n;
+      }
+      verifyChecksum(checksumSink(header).putLongs(data, 0, data.length), header, file);
+
+      CuckooFilter filter = new CuckooFilter(data, header.getInt(16));
+      filter.size = header.getLong(32);
+      filter.victimFingerprint = header.getInt(20);
+      filter.victimBucket = header.getInt(24);
+      return filter;
+    }
+  }
+
+  /** Reads and validates the header, leaving the channel positioned at the data */
+  private static ByteBuffer readHeader(FileChannel channel, Path file) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    while (header.hasRemaining()) {
+      if (channel.read(header) < 0) {
+        throw new IOException("Not a filter file, too short: " + file);
+      }
+    }
+    if (header.getInt(0) != MAGIC) {
+      throw new IOException("Not a filter file: " + file);
+    }
+    int version = header.getInt(4);
+    if (version != VERSION) {
+      throw new IOException("Unsupported filter file version " + version + ": " + file);
+    }
+    int type = header.getInt(8);
+    int hashFamily = header.getInt(12);
+    if (type != TYPE_CUCKOO || hashFamily != HASH_MURMUR3_X64_128) {
+      throw new IOException("Unsupported filter type " + type + " with hash family " + hashFamily + ": " + file);
+    }
+    long dataLongs = header.getLong(40);
+    if (dataLongs <= 0 || dataLongs > 1 << 30 || Long.bitCount(dataLongs) != 1 ||
+        channel.size() != HEADER_SIZE + dataLongs * 8) {
+      throw new IOException("Corrupted filter file, bad data size " + dataLongs + ": " + file);
+    }
+    header.clear();
+    return header;
+  }
+
+  /** Sink with the header bytes covered by the checksum already added */
+  private static HashingSink128 checksumSink(ByteBuffer header) {
+    ByteBuffer covered = header.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    covered.position(0);
+    covered.limit(CHECKSUM_OFFSET);
+    return new HashingSink128(0).putBytes(covered);
+  }
+
+  private static void verifyChecksum(HashingSink128 sink, ByteBuffer header, Path file) throws IOException {
+    HashCode128 checksum = sink.finish();
+    if (checksum.val1 != header.getLong(CHECKSUM_OFFSET) || checksum.val2 != header.getLong(CHECKSUM_OFFSET + 8)) {
+      throw new IOException("Filter file checksum mismatch: " + file);
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
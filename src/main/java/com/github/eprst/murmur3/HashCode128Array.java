@@ -0,0 +1,414 @@
+package com.github.eprst.murmur3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * Compact array of 128-bit hashes, avoiding per-element object overhead of {@code HashCode128[]}.
+ * <p>
+ * Arrays created by {@link #allocate(int)} live on heap as two parallel {@code long[]}s of {@code val1} and
+ * {@code val2} and can be appended to and sorted. Arrays created by {@link #map(Path)} are read-only views
+ * onto a file previously written by {@link #writeTo(Path)}, no data is copied to heap.
+ * <p>
+ * Sort order is unsigned lexicographic order of {@code (val1, val2)}. Search and set operations require
+ * arrays to be sorted, results of set operations are sorted too. Duplicates are treated as in multisets:
+ * intersection keeps the minimum number of occurrences, union keeps the maximum. Not thread-safe.
+ */
+public abstract class HashCode128Array {
+  /** File header: magic, format version and number of elements */
+  static final int FILE_MAGIC = 0x4d334841; // "M3HA"
+  static final int FILE_VERSION = 1;
+  static final int FILE_HEADER_SIZE = 16;
+
+  HashCode128Array() {}
+
+  /** Creates a new growable on-heap array */
+  public static HashCode128Array allocate(int initialCapacity) {
+    return new Heap(initialCapacity);
+  }
+
+  /**
+   * Maps file written by {@link #writeTo(Path)} to memory and returns a read-only array backed by it.
+   * Mapping is released when returned instance is garbage collected.
+   */
+  public static HashCode128Array map(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new Mapped(channel);
+    }
+  }
+
+  public abstract int size();
+
+  /** First half of the hash at index {@code i} */
+  public abstract long val1(int i);
+
+  /** Second half of the hash at index {@code i} */
+  public abstract long val2(int i);
+
+  /** Appends a hash to the end of the array */
+  public abstract HashCode128Array add(long val1, long val2);
+
+  /** Sorts array in place using LSD radix sort */
+  public abstract HashCode128Array sort();
+
+  public HashCode128Array add(HashCode128 hash) {
+    return add(hash.val1, hash.val2);
+  }
+
+  /** Copies hash at index {@code i} to {@code out} */
+  public HashCode128 get(int i, HashCode128 out) {
+    out.val1 = val1(i);
+    out.val2 = val2(i);
+    return out;
+  }
+
+  public HashCode128 get(int i) {
+    return get(i, new HashCode128());
+  }
+
+  public boolean isSorted() {
+    for (int i = 1, size = size(); i < size; i++) {
+      if (compare(val1(i - 1), val2(i - 1), val1(i), val2(i)) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Searches sorted array for the hash.
+   *
+   * @return index of the hash, if found; otherwise {@code (-(insertion point) - 1)}, same as
+   * {@link Arrays#binarySearch(long[], long)}
+   */
+  public int binarySearch(long val1, long val2) {
+    int low = 0;
+    int high = size() - 1;
+
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compare(val1(mid), val2(mid), val1, val2);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  public int binarySearch(HashCode128 hash) {
+    return binarySearch(hash.val1, hash.val2);
+  }
+
+  public boolean contains(HashCode128 hash) {
+    return binarySearch(hash.val1, hash.val2) >= 0;
+  }
+
+  /** Returns hashes present in both sorted arrays */
+  public static HashCode128Array intersection(HashCode128Array a, HashCode128Array b) {
+    int aSize = a.size();
+    int bSize = b.size();
+    HashCode128Array result = allocate(Math.min(aSize, bSize));
+    int i = 0;
+    int j = 0;
+    while (i < aSize && j < bSize) {
+      int cmp = compare(a.val1(i), a.val2(i), b.val1(j), b.val2(j));
+      if (cmp < 0) {
+        i++;
+      } else if (cmp > 0) {
+        j++;
+      } else {
+        result.add(a.val1(i), a.val2(i));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /** Returns hashes present in any of the sorted arrays */
+  public static HashCode128Array union(HashCode128Array a, HashCode128Array b) {
+    int aSize = a.size();
+    int bSize = b.size();
+    HashCode128Array result = allocate(aSize + bSize);
+    int i = 0;
+    int j = 0;
+    while (i < aSize && j < bSize) {
+      int cmp = compare(a.val1(i), a.val2(i), b.val1(j), b.val2(j));
+      if (cmp < 0) {
+        result.add(a.val1(i), a.val2(i));
+        i++;
+      } else if (cmp > 0) {
+        result.add(b.val1(j), b.val2(j));
+        j++;
+      } else {
+        result.add(a.val1(i), a.val2(i));
+        i++;
+        j++;
+      }
+    }
+    for (; i < aSize; i++) {
+      result.add(a.val1(i), a.val2(i));
+    }
+    for (; j < bSize; j++) {
+      result.add(b.val1(j), b.val2(j));
+    }
+    return result;
+  }
+
+  /** Returns hashes present in sorted array {@code a} but not in sorted array {@code b} */
+  public static HashCode128Array difference(HashCode128Array a, HashCode128Array b) {
+    int aSize = a.size();
+    int bSize = b.size();
+    HashCode128Array result = allocate(aSize);
+    int i = 0;
+    int j = 0;
+    while (i < aSize && j < bSize) {
+      int cmp = compare(a.val1(i), a.val2(i), b.val1(j), b.val2(j));
+      if (cmp < 0) {
+        result.add(a.val1(i), a.val2(i));
+        i++;
+      } else if (cmp > 0) {
+        j++;
+      } else {
+        i++;
+        j++;
+      }
+    }
+    for (; i < aSize; i++) {
+      result.add(a.val1(i), a.val2(i));
+    }
+    return result;
+  }
+
+  /**
+   * Writes array to a file which can later be mapped back by {@link #map(Path)}. Hashes are stored as
+   * 16-byte little-endian pairs, same as {@link HashCode128#getBytes()}, after a 16-byte header.
+   */
+  public void writeTo(Path file) throws IOException {
+    int size = size();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    try (FileChannel channel = FileChannel.open(
+        file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putLong(size);
+      for (int i = 0; i < size; i++) {
+        if (buffer.remaining() < 16) {
+          writeFully(channel, buffer);
+        }
+        buffer.putLong(val1(i)).putLong(val2(i));
+      }
+      writeFully(channel, buffer);
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /** Compares two hashes in unsigned lexicographic order */
+  public static int compare(long a1, long a2, long b1, long b2) {
+    int cmp = Long.compareUnsigned(a1, b1);
+    return cmp != 0 ? cmp : Long.compareUnsigned(a2, b2);
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+  private static final class Heap extends HashCode128Array {
+    private long[] val1;
+    private long[] val2;
+    private int size;
+
+    Heap(int initialCapacity) {
+      val1 = new long[initialCapacity];
+      val2 = new long[initialCapacity];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public long val1(int i) {
+      checkIndex(i);
+      return val1[i];
+    }
+
+    @Override
+    public long val2(int i) {
+      checkIndex(i);
+      return val2[i];
+    }
+
+    private void checkIndex(int i) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+      }
+    }
+
+    @Override
+    public HashCode128Array add(long v1, long v2) {
+      if (size == val1.length) {
+        int newCapacity = Math.max(16, size + (size >> 1));
+        val1 = Arrays.copyOf(val1, newCapacity);
+        val2 = Arrays.copyOf(val2, newCapacity);
+      }
+      val1[size] = v1;
+      val2[size] = v2;
+      size++;
+      return this;
+    }
+
+    @Override
+    public HashCode128Array sort() {
+      // histograms for all 16 byte digits are collected in a single pass, from the least significant
+      // byte of val2 (digit 0) to the most significant byte of val1 (digit 15)
+      int[][] counts = new int[16][256];
+      for (int i = 0; i < size; i++) {
+        long v1 = val1[i];
+        long v2 = val2[i];
+        for (int d = 0; d < 8; d++) {
+          counts[d][(int) (v2 >>> (d << 3)) & 0xff]++;
+          counts[d + 8][(int) (v1 >>> (d << 3)) & 0xff]++;
+        }
+      }
+
+      long[] src1 = val1;
+      long[] src2 = val2;
+      long[] dst1 = null;
+      long[] dst2 = null;
+
+      for (int d = 0; d < 16; d++) {
+        int[] count = counts[d];
+        // skip digits which are the same for all elements, common for sparse ranges of hashes
+        boolean trivial = false;
+        for (int c : count) {
+          if (c != 0) {
+            trivial = c == size;
+            break;
+          }
+        }
+        if (trivial) {
+          continue;
+        }
+
+        if (dst1 == null) {
+          dst1 = new long[val1.length];
+          dst2 = new long[val2.length];
+        }
+
+        int sum = 0;
+        for (int b = 0; b < 256; b++) {
+          int c = count[b];
+          count[b] = sum;
+          sum += c;
+        }
+
+        long[] keys = d < 8 ? src2 : src1;
+        int shift = (d & 7) << 3;
+        for (int i = 0; i < size; i++) {
+          int pos = count[(int) (keys[i] >>> shift) & 0xff]++;
+          dst1[pos] = src1[i];
+          dst2[pos] = src2[i];
+        }
+
+        long[] t = src1;
+        src1 = dst1;
+        dst1 = t;
+        t = src2;
+        src2 = dst2;
+        dst2 = t;
+      }
+
+      val1 = src1;
+      val2 = src2;
+      return this;
+    }
+  }
+
+  private static final class Mapped extends HashCode128Array {
+    // each segment is at most 1GB, which is a multiple of 16 so entries never cross segment boundaries
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final int size;
+
+    Mapped(FileChannel channel) throws IOException {
+      long fileSize = channel.size();
+      if (fileSize < FILE_HEADER_SIZE) {
+        throw new IOException("Not a hash array file, size: " + fileSize);
+      }
+
+      int numSegments = (int) ((fileSize + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+      segments = new MappedByteBuffer[numSegments];
+      for (int i = 0; i < numSegments; i++) {
+        long position = (long) i << SEGMENT_SHIFT;
+        long length = Math.min(fileSize - position, 1L << SEGMENT_SHIFT);
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        segments[i].order(ByteOrder.LITTLE_ENDIAN);
+      }
+
+      ByteBuffer header = segments[0];
+      if (header.getInt(0) != FILE_MAGIC) {
+        throw new IOException("Not a hash array file, bad magic: " + Integer.toHexString(header.getInt(0)));
+      }
+      if (header.getInt(4) != FILE_VERSION) {
+        throw new IOException("Unsupported hash array file version: " + header.getInt(4));
+      }
+      long length = header.getLong(8);
+      if (length < 0 || length > Integer.MAX_VALUE || FILE_HEADER_SIZE + length * 16 > fileSize) {
+        throw new IOException("Truncated hash array file, expected " + length + " elements, file size: " + fileSize);
+      }
+      size = (int) length;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public long val1(int i) {
+      return getLong(i, 0);
+    }
+
+    @Override
+    public long val2(int i) {
+      return getLong(i, 8);
+    }
+
+    private long getLong(int i, int delta) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+      }
+      long position = FILE_HEADER_SIZE + ((long) i << 4) + delta;
+      return segments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & SEGMENT_MASK));
+    }
+
+    @Override
+    public HashCode128Array add(long val1, long val2) {
+      throw new UnsupportedOperationException("Mapped hash arrays are read-only");
+    }
+
+    @Override
+    public HashCode128Array sort() {
+      throw new UnsupportedOperationException("Mapped hash arrays are read-only");
+    }
+  }
+}
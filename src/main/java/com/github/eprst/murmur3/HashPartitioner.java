@@ -0,0 +1,120 @@
+package com.github.eprst.murmur3;
+
+/**
+ * Maps keys to {@code [0, numPartitions)} using {@link MurmurHash3#murmurhash3_x86_32} hashes.
+ * <p>
+ * Hashes are reduced to partitions with Lemire's multiply-shift range reduction, {@code (hash * n) >>> 32}
+ * for an unsigned 32-bit hash, which is much cheaper than {@code Math.floorMod} and equally uniform for
+ * well-mixed hashes. Note that it uses high bits of the hash, so partition ids differ from the modulo ones.
+ * <p>
+ * Batch methods fill caller-provided arrays and never allocate. {@link #sort} builds a counting-sort
+ * permutation so that records can be scattered to partitions in a single pass:
+ * <pre>{@code
+ * partitioner.partition(keys, count, ids);
+ * partitioner.sort(ids, count, offsets, permutation);
+ * for (int p = 0; p < numPartitions; p++) {
+ *   for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+ *     emit(p, records[permutation[i]]);
+ *   }
+ * }
+ * }</pre>
+ * Instances are immutable and thread-safe.
+ */
+public final class HashPartitioner {
+  private final int numPartitions;
+  private final int seed;
+
+  public HashPartitioner(int numPartitions, int seed) {
+    if (numPartitions <= 0) {
+      throw new IllegalArgumentException("Number of partitions must be positive: " + numPartitions);
+    }
+    this.numPartitions = numPartitions;
+    this.seed = seed;
+  }
+
+  public int numPartitions() {
+    return numPartitions;
+  }
+
+  /** Maps 32-bit {@code hash} to {@code [0, n)} */
+  public static int reduce(int hash, int n) {
+    return (int) (((hash & 0xffffffffL) * n) >>> 32);
+  }
+
+  public int partitionOfHash(int hash) {
+    return reduce(hash, numPartitions);
+  }
+
+  public int partition(byte[] key, int offset, int len) {
+    return reduce(MurmurHash3.murmurhash3_x86_32(key, offset, len, seed), numPartitions);
+  }
+
+  public int partition(byte[] key) {
+    return partition(key, 0, key.length);
+  }
+
+  /** Partition of the UTF-8 encoded {@code key} */
+  public int partition(CharSequence key) {
+    return reduce(MurmurHash3.murmurhash3_x86_32(key, 0, key.length(), seed), numPartitions);
+  }
+
+  /** Computes partitions of first {@code count} already computed hashes into {@code partitionIds} */
+  public void partitionHashes(int[] hashes, int count, int[] partitionIds) {
+    final int n = numPartitions;
+    for (int i = 0; i < count; i++) {
+      partitionIds[i] = reduce(hashes[i], n);
+    }
+  }
+
+  /** Computes partitions of first {@code count} keys into {@code partitionIds} */
+  public void partition(byte[][] keys, int count, int[] partitionIds) {
+    final int n = numPartitions;
+    for (int i = 0; i < count; i++) {
+      byte[] key = keys[i];
+      partitionIds[i] = reduce(MurmurHash3.murmurhash3_x86_32(key, 0, key.length, seed), n);
+    }
+  }
+
+  /** Computes partitions of first {@code count} UTF-8 encoded keys into {@code partitionIds} */
+  public void partition(CharSequence[] keys, int count, int[] partitionIds) {
+    final int n = numPartitions;
+    for (int i = 0; i < count; i++) {
+      CharSequence key = keys[i];
+      partitionIds[i] = reduce(MurmurHash3.murmurhash3_x86_32(key, 0, key.length(), seed), n);
+    }
+  }
+
+  /**
+   * Builds a stable counting-sort permutation of first {@code count} records by partition.
+   *
+   * @param partitionIds partition of each record, as computed by {@code partition} methods
+   * @param count number of records
+   * @param offsets array of at least {@code numPartitions + 1} elements. On return records of partition
+   *                {@code p} are at {@code permutation[offsets[p]]} to {@code permutation[offsets[p + 1] - 1]}
+   * @param permutation array of at least {@code count} elements to receive record indexes grouped by partition
+   */
+  public void sort(int[] partitionIds, int count, int[] offsets, int[] permutation) {
+    final int n = numPartitions;
+
+    // histogram, shifted by one so that prefix sum leaves partition starts in place
+    for (int p = 0; p <= n; p++) {
+      offsets[p] = 0;
+    }
+    for (int i = 0; i < count; i++) {
+      offsets[partitionIds[i] + 1]++;
+    }
+
+    for (int p = 1; p <= n; p++) {
+      offsets[p] += offsets[p - 1];
+    }
+
+    // scatter, using offsets as write cursors. They end up shifted by one partition, restore them afterwards
+    for (int i = 0; i < count; i++) {
+      permutation[offsets[partitionIds[i]]++] = i;
+    }
+    for (int p = n; p > 0; p--) {
+      offsets[p] = offsets[p - 1];
+    }
+    offsets[0] = 0;
+  }
+}
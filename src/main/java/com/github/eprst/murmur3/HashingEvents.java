@@ -0,0 +1,23 @@
+package com.github.eprst.murmur3;
+
+/**
+ * Java Flight Recorder events for large hashing operations. This is a no-op version used on Java 8,
+ * JFR-backed version is in the {@code META-INF/versions/11} layer of the multi-release jar.
+ * <p>
+ * Usage pattern: {@code Object event = begin(); ...; end(event, entryPoint, bytes)}. Event is committed
+ * only if {@code bytes} is at least {@code -Dmurmur3.jfr.threshold} (1 MiB by default).
+ */
+final class HashingEvents {
+  static final long THRESHOLD = Long.getLong("murmur3.jfr.threshold", 1L << 20);
+
+  private HashingEvents() {}
+
+  /** Starts timing an operation, returns {@code null} if events are disabled */
+  static Object begin() {
+    return null;
+  }
+
+  /** Finishes timing operation started by {@link #begin()} */
+  static void end(Object event, String entryPoint, long bytes) {
+  }
+}
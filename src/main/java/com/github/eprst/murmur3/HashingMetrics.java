@@ -0,0 +1,113 @@
+package com.github.eprst.murmur3;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional hashing metrics: number of calls, number of hashed bytes and a key length histogram per entry point.
+ * <p>
+ * Disabled by default, enable with {@code -Dmurmur3.metrics=true}. The switch is a static final constant, so when
+ * metrics are disabled the JIT removes the instrumentation completely. Calls made through
+ * {@link InstrumentedMurmurHash3} and every {@link HashingSink128#finish} are recorded.
+ * <p>
+ * Lengths of {@code CharSequence} entry points are counted in chars rather than encoded bytes. Histogram bucket
+ * {@code 0} counts empty keys, bucket {@code i > 0} counts keys of {@code [2^(i-1), 2^i)} length.
+ */
+public final class HashingMetrics {
+  public static final boolean ENABLED = Boolean.getBoolean("murmur3.metrics");
+
+  public static final int NUM_BUCKETS = 33;
+
+  public enum EntryPoint {
+    X86_32_BYTES,
+    X86_32_STRING,
+    X64_128_BYTES,
+    X64_128_STRING,
+    X64_128_ASCII,
+    X64_128_SAFE_ASCII,
+    SINK
+  }
+
+  private static final EntryPoint[] entryPoints = EntryPoint.values();
+  private static final LongAdder[] calls = new LongAdder[entryPoints.length];
+  private static final LongAdder[] bytes = new LongAdder[entryPoints.length];
+  private static final LongAdder[][] histograms = new LongAdder[entryPoints.length][NUM_BUCKETS];
+
+  static {
+    for (int e = 0; e < entryPoints.length; e++) {
+      calls[e] = new LongAdder();
+      bytes[e] = new LongAdder();
+      for (int b = 0; b < NUM_BUCKETS; b++) {
+        histograms[e][b] = new LongAdder();
+      }
+    }
+  }
+
+  private HashingMetrics() {}
+
+  static void record(EntryPoint entryPoint, long length) {
+    int e = entryPoint.ordinal();
+    calls[e].increment();
+    bytes[e].add(length);
+    histograms[e][bucket(length)].increment();
+  }
+
+  /** Histogram bucket for a key of {@code length} */
+  public static int bucket(long length) {
+    return length <= 0 ? 0 : Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(length));
+  }
+
+  public static long calls(EntryPoint entryPoint) {
+    return calls[entryPoint.ordinal()].sum();
+  }
+
+  public static long bytes(EntryPoint entryPoint) {
+    return bytes[entryPoint.ordinal()].sum();
+  }
+
+  /** Returns a snapshot of the key length histogram, see class description for bucket boundaries */
+  public static long[] lengthHistogram(EntryPoint entryPoint) {
+    long[] res = new long[NUM_BUCKETS];
+    LongAdder[] histogram = histograms[entryPoint.ordinal()];
+    for (int b = 0; b < NUM_BUCKETS; b++) {
+      res[b] = histogram[b].sum();
+    }
+    return res;
+  }
+
+  /** Resets all counters. Not atomic with respect to concurrent updates */
+  public static void reset() {
+    for (int e = 0; e < entryPoints.length; e++) {
+      calls[e].reset();
+      bytes[e].reset();
+      for (LongAdder adder : histograms[e]) {
+        adder.reset();
+      }
+    }
+  }
+
+  /** Human-readable summary of non-empty entry points */
+  public static String report() {
+    StringBuilder sb = new StringBuilder();
+    for (EntryPoint entryPoint : entryPoints) {
+      long c = calls(entryPoint);
+      if (c == 0) {
+        continue;
+      }
+      sb.append(entryPoint).append(": calls=").append(c).append(", bytes=").append(bytes(entryPoint))
+        .append(", lengths={");
+      long[] histogram = lengthHistogram(entryPoint);
+      boolean first = true;
+      for (int b = 0; b < NUM_BUCKETS; b++) {
+        if (histogram[b] != 0) {
+          if (!first) {
+            sb.append(", ");
+          }
+          sb.append(b == 0 ? "0" : "<" + (1L << b)).append(": ").append(histogram[b]);
+          first = false;
+        }
+      }
+      sb.append("}\n");
+    }
+    return sb.toString();
+  }
+}
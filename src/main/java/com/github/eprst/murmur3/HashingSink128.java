@@ -1,6 +1,14 @@
 package com.github.eprst.murmur3;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 
 import static com.github.eprst.murmur3.MurmurHash3.*;
@@ -18,18 +26,39 @@ public final class HashingSink128 {
   private final byte[] buffer = new byte[19];
   private int bufferOffset = 0;
   private int totalBytesHashed = 0;
+  /** JFR event, started at the first block so idle time of a pooled sink isn't counted */
+  private Object event;
+  // encoding state, allocated on first use
+  private CharBuffer chars;
+  private ByteBuffer encoded;
+  private CharsetEncoder encoder;
 
   public HashingSink128(int seed) {
+    // The original algorithm does have a 32 bit unsigned seed.
+    // We have to mask to match the behavior of the unsigned types and prevent sign extension.
+    this(seed & 0x00000000FFFFFFFFL);
+  }
+
+  private HashingSink128(long seed) {
     this.seed = seed;
     reset();
   }
 
+  /**
+   * Creates a sink producing the same results as Guava's {@code Hashing.murmur3_128(seed)}. It differs from
+   * the reference implementation for negative seeds, which Guava sign-extends to 64 bits.
+   */
+  public static HashingSink128 guavaCompatible(int seed) {
+    return new HashingSink128((long) seed);
+  }
+
   /** Aborts current hash computation and resets to the initial state */
   public HashingSink128 reset() {
-    h1 = seed & 0x00000000FFFFFFFFL;
-    h2 = seed & 0x00000000FFFFFFFFL;
+    h1 = seed;
+    h2 = seed;
     bufferOffset = 0;
     totalBytesHashed = 0;
+    event = null;
     return this;
   }
 
@@ -66,6 +95,34 @@ public final class HashingSink128 {
     return putBytes(bytes, 0, bytes.length);
   }
 
+  /**
+   * Hashes bytes between buffer position and limit, position is advanced to the limit. Works with heap and direct
+   * buffers of any byte order without copying, whole blocks are fed to the hash directly when the sink is aligned
+   * on a 16 bytes block boundary.
+   */
+  public HashingSink128 putBytes(ByteBuffer data) {
+    int pos = data.position();
+    int end = data.limit();
+    while (bufferOffset != 0 && pos < end) {
+      putByte(data.get(pos++));
+    }
+    boolean bigEndian = data.order() == ByteOrder.BIG_ENDIAN;
+    for (; pos <= end - 16; pos += 16) {
+      long k1 = data.getLong(pos);
+      long k2 = data.getLong(pos + 8);
+      if (bigEndian) {
+        k1 = Long.reverseBytes(k1);
+        k2 = Long.reverseBytes(k2);
+      }
+      munch(k1, k2);
+    }
+    while (pos < end) {
+      putByte(data.get(pos++));
+    }
+    data.position(end);
+    return this;
+  }
+
   public HashingSink128 putMurmurHash3(MurmurHash3.HashCode128 hash) {
     putLong(hash.val1);
     putLong(hash.val2);
@@ -73,8 +130,10 @@ public final class HashingSink128 {
   }
 
   private void munch() {
-    long k1 = MurmurHash3.getLongLittleEndian(buffer, 0);
-    long k2 = MurmurHash3.getLongLittleEndian(buffer, 8);
+    munch(MurmurHash3.getLongLittleEndian(buffer, 0), MurmurHash3.getLongLittleEndian(buffer, 8));
+  }
+
+  private void munch(long k1, long k2) {
     k1 *= c1;
     k1 = Long.rotateLeft(k1, 31);
     k1 *= c2;
@@ -89,6 +148,9 @@ public final class HashingSink128 {
     h2 = Long.rotateLeft(h2, 31);
     h2 += h1;
     h2 = h2 * 5 + 0x38495ab5;
+    if (totalBytesHashed == 0) {
+      event = HashingEvents.begin();
+    }
     totalBytesHashed += 16;
   }
 
@@ -129,6 +191,86 @@ public final class HashingSink128 {
     return this;
   }
 
+  /**
+   * Same as calling {@link #putLong} for every element, but feeds whole blocks to the hash directly when
+   * the sink is aligned on a 16 bytes block boundary.
+   */
+  public HashingSink128 putLongs(long[] data, int offset, int len) {
+    int i = offset;
+    int end = offset + len;
+    while (bufferOffset != 0 && i < end) {
+      putLong(data[i++]);
+    }
+    for (; i < end - 1; i += 2) {
+      munch(data[i], data[i + 1]);
+    }
+    if (i < end) {
+      putLong(data[i]);
+    }
+    return this;
+  }
+
+  /**
+   * Same as calling {@link #putDouble} for every element, but feeds whole blocks to the hash directly when
+   * the sink is aligned on a 16 bytes block boundary.
+   */
+  public HashingSink128 putDoubles(double[] data, int offset, int len) {
+    int i = offset;
+    int end = offset + len;
+    while (bufferOffset != 0 && i < end) {
+      putDouble(data[i++]);
+    }
+    for (; i < end - 1; i += 2) {
+      munch(Double.doubleToRawLongBits(data[i]), Double.doubleToRawLongBits(data[i + 1]));
+    }
+    if (i < end) {
+      putDouble(data[i]);
+    }
+    return this;
+  }
+
+  /**
+   * Same as calling {@link #putInt} for every element, but feeds whole blocks to the hash directly when
+   * the sink is aligned on a 16 bytes block boundary.
+   */
+  public HashingSink128 putInts(int[] data, int offset, int len) {
+    int i = offset;
+    int end = offset + len;
+    while (bufferOffset != 0 && i < end) {
+      putInt(data[i++]);
+    }
+    for (; i < end - 3; i += 4) {
+      munch((data[i] & 0xffffffffL) | ((long) data[i + 1] << 32),
+            (data[i + 2] & 0xffffffffL) | ((long) data[i + 3] << 32));
+    }
+    while (i < end) {
+      putInt(data[i++]);
+    }
+    return this;
+  }
+
+  /**
+   * Same as calling {@link #putShort} for every element, but feeds whole blocks to the hash directly when
+   * the sink is aligned on a 16 bytes block boundary.
+   */
+  public HashingSink128 putShorts(short[] data, int offset, int len) {
+    int i = offset;
+    int end = offset + len;
+    while (bufferOffset != 0 && i < end) {
+      putShort(data[i++]);
+    }
+    for (; i < end - 7; i += 8) {
+      munch((data[i] & 0xffffL) | ((data[i + 1] & 0xffffL) << 16) |
+            ((data[i + 2] & 0xffffL) << 32) | ((long) data[i + 3] << 48),
+            (data[i + 4] & 0xffffL) | ((data[i + 5] & 0xffffL) << 16) |
+            ((data[i + 6] & 0xffffL) << 32) | ((long) data[i + 7] << 48));
+    }
+    while (i < end) {
+      putShort(data[i++]);
+    }
+    return this;
+  }
+
   public HashingSink128 putFloat(float f) {
     putInt(Float.floatToIntBits(f));
     return this;
@@ -153,15 +295,174 @@ public final class HashingSink128 {
   }
 
   public HashingSink128 putString(CharSequence charSequence, Charset charset) {
+    return putString(charSequence, 0, charSequence.length(), charset);
+  }
+
+  /**
+   * Hashes {@code len} chars starting at {@code offset} encoded with {@code charset}, same as hashing
+   * {@code data.subSequence(offset, offset + len).toString().getBytes(charset)} including replacement of
+   * malformed and unmappable characters, but without allocating. The exception is UTF-8, which goes through
+   * {@link #putUtf8String}: unpaired surrogates are not replaced by {@code '?'}, so results differ from
+   * {@code getBytes} for malformed strings. UTF-8, ISO-8859-1, US-ASCII and UTF-16 variants are encoded by hand, other charsets are streamed
+   * through a cached {@link CharsetEncoder}.
+   */
+  public HashingSink128 putString(CharSequence data, int offset, int len, Charset charset) {
     if (charset.equals(StandardCharsets.UTF_8)) {
-      return putUtf8String(charSequence, 0, charSequence.length());
+      return putUtf8String(data, offset, len);
+    } else if (charset.equals(StandardCharsets.ISO_8859_1)) {
+      return putSingleByteString(data, offset, len, 0xff);
+    } else if (charset.equals(StandardCharsets.US_ASCII)) {
+      return putSingleByteString(data, offset, len, 0x7f);
+    } else if (charset.equals(StandardCharsets.UTF_16LE)) {
+      return putUtf16String(data, offset, len, false);
+    } else if (charset.equals(StandardCharsets.UTF_16BE)) {
+      return putUtf16String(data, offset, len, true);
+    } else if (charset.equals(StandardCharsets.UTF_16)) {
+      // big endian with a byte order mark, which is omitted for empty strings
+      if (len > 0) {
+        putByte((byte) 0xfe);
+        putByte((byte) 0xff);
+      }
+      return putUtf16String(data, offset, len, true);
+    } else if (charset.canEncode()) {
+      return putEncodedString(data, offset, len, charset);
+    } else {
+      return putBytes(data.subSequence(offset, offset + len).toString().getBytes(charset));
+    }
+  }
+
+  /** ISO-8859-1 and US-ASCII encoder, unmappable chars are replaced by {@code '?'} */
+  private HashingSink128 putSingleByteString(CharSequence data, int offset, int len, int maxChar) {
+    int pos = offset;
+    int end = offset + len;
+
+    while (true) {
+      while (bufferOffset < 16 && pos < end) {
+        char code = data.charAt(pos++);
+        if (code > maxChar) {
+          // surrogate pair is a single unmappable character
+          if (Character.isHighSurrogate(code) && pos < end && Character.isLowSurrogate(data.charAt(pos))) {
+            pos++;
+          }
+          code = '?';
+        }
+        buffer[bufferOffset++] = (byte) code;
+      }
+
+      if (bufferOffset > 15) {
+        munch();
+        bufferOffset = 0;
+      } else {
+        break;
+      }
+    }
+
+    return this;
+  }
+
+  /** UTF-16LE and UTF-16BE encoder, unpaired surrogates are replaced by {@code U+FFFD} */
+  private HashingSink128 putUtf16String(CharSequence data, int offset, int len, boolean bigEndian) {
+    int pos = offset;
+    int end = offset + len;
+
+    while (true) {
+      // encode at least 16 bytes
+      while (bufferOffset < 16 && pos < end) {
+        char code = data.charAt(pos++);
+        if (Character.isSurrogate(code)) {
+          if (Character.isHighSurrogate(code) && pos < end && Character.isLowSurrogate(data.charAt(pos))) {
+            putUtf16Char(code, bigEndian);
+            code = data.charAt(pos++);
+          } else {
+            code = '\uFFFD';
+          }
+        }
+        putUtf16Char(code, bigEndian);
+      }
+
+      if (bufferOffset > 15) {
+        munch();
+        bufferOffset -= 16;
+        switch (bufferOffset) {
+          case 3:
+            buffer[2] = buffer[18];
+          case 2:
+            buffer[1] = buffer[17];
+          case 1:
+            buffer[0] = buffer[16];
+        }
+      } else {
+        break;
+      }
+    }
+
+    return this;
+  }
+
+  private void putUtf16Char(char c, boolean bigEndian) {
+    if (bigEndian) {
+      buffer[bufferOffset++] = (byte) (c >>> 8);
+      buffer[bufferOffset++] = (byte) c;
     } else {
-      return putBytes(charSequence.toString().getBytes(charset));
+      buffer[bufferOffset++] = (byte) c;
+      buffer[bufferOffset++] = (byte) (c >>> 8);
     }
   }
 
+  /** Streams chars through a cached encoder, 4K chars at a time */
+  private HashingSink128 putEncodedString(CharSequence data, int offset, int len, Charset charset) {
+    if (len == 0) {
+      return this; // String.getBytes doesn't write a byte order mark for empty strings either
+    }
+    if (encoder == null || !encoder.charset().equals(charset)) {
+      encoder = charset.newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    if (chars == null) {
+      chars = CharBuffer.allocate(4096);
+    }
+    if (encoded == null) {
+      encoded = ByteBuffer.allocate(1024);
+    }
+    encoder.reset();
+    CharBuffer in = chars;
+    char[] block = in.array();
+    in.clear();
+    encoded.clear();
+
+    int pos = offset;
+    int end = offset + len;
+    CoderResult result;
+    do {
+      int p = in.position();
+      int n = Math.min(in.remaining(), end - pos);
+      for (int i = 0; i < n; i++) {
+        block[p++] = data.charAt(pos++);
+      }
+      in.position(p).flip();
+      result = encoder.encode(in, encoded, pos == end);
+      drainEncoded();
+      in.compact();
+    } while (pos < end || result.isOverflow());
+
+    do {
+      result = encoder.flush(encoded);
+      drainEncoded();
+    } while (result.isOverflow());
+    return this;
+  }
+
+  private void drainEncoded() {
+    encoded.flip();
+    putBytes(encoded);
+    encoded.clear();
+  }
+
   /**
    * Optimized version of {@code putString} which assumes that {@code str} is an UTF-8 encoded string.
+   * Surrogates are not validated: a surrogate at the end is encoded as 3 bytes, elsewhere it is combined with
+   * the next char as if they were a pair.
    */
   public HashingSink128 putUtf8String(CharSequence data, int offset, int len) {
     int pos = offset;
@@ -212,6 +513,37 @@ public final class HashingSink128 {
     return this;
   }
 
+  /**
+   * Reads {@code reader} till the end and hashes the text as UTF-8, same as {@link #putUtf8String} of the whole
+   * text. Reads through a reusable 4K chars block, so memory use doesn't depend on the text size. Reader is not
+   * closed.
+   */
+  public HashingSink128 putReader(Reader reader) throws IOException {
+    if (chars == null) {
+      chars = CharBuffer.allocate(4096);
+    }
+    char[] block = chars.array();
+    int pending = 0;
+    int read;
+    while ((read = reader.read(block, pending, block.length - pending)) >= 0) {
+      int end = pending + read;
+      // The encoder takes any surrogate together with the char after it, so in a run of surrogates at the end of
+      // the block they pair up from the start of the run. If the last one is left alone, hold it back till the
+      // next block.
+      int run = 0;
+      while (run < end && Character.isSurrogate(block[end - 1 - run])) {
+        run++;
+      }
+      int last = (run & 1) != 0 ? end - 1 : end;
+      putUtf8String(chars, 0, last);
+      pending = end - last;
+      if (pending > 0) {
+        block[0] = block[last];
+      }
+    }
+    return putUtf8String(chars, 0, pending);
+  }
+
   /**
    * Optimized version of {@code putString} which assumes that {@code str} is an UTF-8 encoded string and
    * contains only ASCII characters.
@@ -302,6 +634,9 @@ public final class HashingSink128 {
     }
 
     totalBytesHashed += bufferOffset;
+    if (HashingMetrics.ENABLED) {
+      HashingMetrics.record(HashingMetrics.EntryPoint.SINK, totalBytesHashed);
+    }
 
     h1 ^= totalBytesHashed;
     h2 ^= totalBytesHashed;
@@ -318,6 +653,7 @@ public final class HashingSink128 {
     result.val1 = h1;
     result.val2 = h2;
 
+    HashingEvents.end(event, "HashingSink128.finish", totalBytesHashed);
     reset();
   }
 }
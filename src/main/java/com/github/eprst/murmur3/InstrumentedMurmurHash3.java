@@ -0,0 +1,62 @@
+package com.github.eprst.murmur3;
+
+import static com.github.eprst.murmur3.HashingMetrics.EntryPoint;
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * Drop-in replacement for {@link MurmurHash3} hashing methods which records {@link HashingMetrics}.
+ * Same as calling {@code MurmurHash3} directly when metrics are disabled.
+ */
+public final class InstrumentedMurmurHash3 {
+  private InstrumentedMurmurHash3() {}
+
+  /** See {@link MurmurHash3#murmurhash3_x86_32(byte[], int, int, int)} */
+  public static int murmurhash3_x86_32(byte[] data, int offset, int len, int seed) {
+    if (HashingMetrics.ENABLED) {
+      HashingMetrics.record(EntryPoint.X86_32_BYTES, len);
+    }
+    return MurmurHash3.murmurhash3_x86_32(data, offset, len, seed);
+  }
+
+  /** See {@link MurmurHash3#murmurhash3_x86_32(CharSequence, int, int, int)} */
+  public static int murmurhash3_x86_32(CharSequence data, int offset, int len, int seed) {
+    if (HashingMetrics.ENABLED) {
+      HashingMetrics.record(EntryPoint.X86_32_STRING, len);
+    }
+    return MurmurHash3.murmurhash3_x86_32(data, offset, len, seed);
+  }
+
+  /** See {@link MurmurHash3#murmurhash3_x64_128(byte[], int, int, int, HashCode128)} */
+  public static void murmurhash3_x64_128(byte[] key, int offset, int len, int seed, HashCode128 out) {
+    if (HashingMetrics.ENABLED) {
+      HashingMetrics.record(EntryPoint.X64_128_BYTES, len);
+    }
+    MurmurHash3.murmurhash3_x64_128(key, offset, len, seed, out);
+  }
+
+  /** See {@link MurmurHash3#murmurhash3_x64_128(CharSequence, int, int, int, byte[], HashCode128)} */
+  public static void murmurhash3_x64_128(CharSequence data, int offset, int len, int seed, byte[] buf19,
+                                         HashCode128 out) {
+    if (HashingMetrics.ENABLED) {
+      HashingMetrics.record(EntryPoint.X64_128_STRING, len);
+    }
+    MurmurHash3.murmurhash3_x64_128(data, offset, len, seed, buf19, out);
+  }
+
+  /** See {@link MurmurHash3#murmurhash3_x64_128_ascii(CharSequence, int, int, int, HashCode128)} */
+  public static void murmurhash3_x64_128_ascii(CharSequence data, int offset, int len, int seed, HashCode128 out) {
+    if (HashingMetrics.ENABLED) {
+      HashingMetrics.record(EntryPoint.X64_128_ASCII, len);
+    }
+    MurmurHash3.murmurhash3_x64_128_ascii(data, offset, len, seed, out);
+  }
+
+  /** See {@link MurmurHash3#murmurhash3_x64_128_safe_ascii(CharSequence, int, int, int, byte[], HashCode128)} */
+  public static void murmurhash3_x64_128_safe_ascii(CharSequence data, int offset, int len, int seed, byte[] buf19,
+                                                    HashCode128 out) {
+    if (HashingMetrics.ENABLED) {
+      HashingMetrics.record(EntryPoint.X64_128_SAFE_ASCII, len);
+    }
+    MurmurHash3.murmurhash3_x64_128_safe_ascii(data, offset, len, seed, buf19, out);
+  }
+}
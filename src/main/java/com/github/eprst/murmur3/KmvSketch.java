@@ -0,0 +1,406 @@
+package com.github.eprst.murmur3;
+
+import java.util.Arrays;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * K-Minimum-Values sketch (Bar-Yossef et al.; theta sketches of Dasgupta et al.) estimating the number of distinct
+ * keys, and sizes of unions, intersections and differences of key sets, e.g. "users in both A and B".
+ * <p>
+ * Keys are hashed with {@code murmurhash3_x64_128} and the top 63 bits of {@code val1} are the sketch value. The
+ * sketch retains the k smallest distinct values below the threshold theta, which is the smallest value it had to
+ * drop, or 2^63 if none was dropped and the sketch is exact. Estimated count is
+ * {@code retained / (theta / 2^63)}, with a relative standard error of about {@code 1 / sqrt(k)}. Retained values
+ * are kept in a max-heap in a {@code long[]}, with a linear probing {@code long[]} set for duplicate checks, both
+ * grown up to k as values are retained.
+ * <p>
+ * Thread-safe. Once a sketch is full, values at or above theta can't change it, which is most of them, and those
+ * updates are rejected by reading a volatile field without taking the lock.
+ */
+public final class KmvSketch {
+  static final int FORMAT_VERSION = 1;
+  /** Theta of sketches which haven't dropped anything */
+  static final long EXACT = Long.MAX_VALUE;
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final int k;
+  private final int seed;
+  private volatile long theta = EXACT;
+  /** Max-heap of retained values */
+  private long[] heap;
+  private int size;
+  /** Retained values + 1, 0 for free slots */
+  private long[] set;
+  private int setMask;
+  private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+  private static final class Scratch {
+    final HashCode128 hash = new HashCode128();
+    final byte[] buf19 = new byte[19];
+  }
+
+  /**
+   * @param k number of retained values
+   * @param seed key hash seed, only sketches with the same seed can be combined
+   */
+  public KmvSketch(int k, int seed) {
+    this(k, seed, INITIAL_CAPACITY);
+  }
+
+  private KmvSketch(int k, int seed, int capacity) {
+    if (k <= 0 || k > 1 << 28) {
+      throw new IllegalArgumentException("k must be between 1 and 2^28: " + k);
+    }
+    this.k = k;
+    this.seed = seed;
+    heap = new long[0];
+    resize(Math.max(1, Math.min(k, capacity)));
+  }
+
+  public int k() {
+    return k;
+  }
+
+  public int seed() {
+    return seed;
+  }
+
+  public void update(CharSequence key) {
+    Scratch s = scratch.get();
+    MurmurHash3.murmurhash3_x64_128_safe_ascii(key, 0, key.length(), seed, s.buf19, s.hash);
+    update(s.hash);
+  }
+
+  public void update(byte[] key, int offset, int len) {
+    HashCode128 hash = scratch.get().hash;
+    MurmurHash3.murmurhash3_x64_128(key, offset, len, seed, hash);
+    update(hash);
+  }
+
+  public void update(byte[] key) {
+    update(key, 0, key.length);
+  }
+
+  /** Same as updating with the 8 little-endian bytes of {@code key} */
+  public void update(long key) {
+    HashCode128 hash = scratch.get().hash;
+    MurmurHash3.murmurhash3_x64_128(key, seed, hash);
+    update(hash);
+  }
+
+  /** Adds a key by its {@code murmurhash3_x64_128} hash computed with {@link #seed()} */
+  public void update(HashCode128 keyHash) {
+    long value = keyHash.val1 >>> 1;
+    if (value >= theta) {
+      return;
+    }
+    synchronized (this) {
+      insert(value);
+    }
+  }
+
+  /** Estimated number of distinct keys */
+  public synchronized double estimate() {
+    return estimate(size, theta);
+  }
+
+  /** Number of retained values */
+  public synchronized int retained() {
+    return size;
+  }
+
+  /** Threshold as a fraction of the hash space, 1 for exact sketches */
+  public double theta() {
+    return fraction(theta);
+  }
+
+  /** Sketch of the union of the key sets, retaining {@code min(a.k(), b.k())} values */
+  public static KmvSketch union(KmvSketch a, KmvSketch b) {
+    checkSeeds(a, b);
+    Snapshot sa = a.snapshot();
+    Snapshot sb = b.snapshot();
+    long theta = Math.min(sa.theta, sb.theta);
+    long[] values = new long[sa.values.length + sb.values.length];
+    int n = 0;
+    int i = 0;
+    int j = 0;
+    while (i < sa.values.length || j < sb.values.length) {
+      long va = i < sa.values.length ? sa.values[i] : Long.MAX_VALUE;
+      long vb = j < sb.values.length ? sb.values[j] : Long.MAX_VALUE;
+      long v = Math.min(va, vb);
+      if (v >= theta) {
+        break;
+      }
+      values[n++] = v;
+      i += va == v ? 1 : 0;
+      j += vb == v ? 1 : 0;
+    }
+    return fromSorted(Math.min(a.k, b.k), a.seed, theta, values, n);
+  }
+
+  /** Sketch of the intersection of the key sets */
+  public static KmvSketch intersection(KmvSketch a, KmvSketch b) {
+    return combine(a, b, true);
+  }
+
+  /** Sketch of the keys of {@code a} which are not in {@code b} */
+  public static KmvSketch difference(KmvSketch a, KmvSketch b) {
+    return combine(a, b, false);
+  }
+
+  /** Values of {@code a} below the common theta which are (or are not) in {@code b} */
+  private static KmvSketch combine(KmvSketch a, KmvSketch b, boolean inB) {
+    checkSeeds(a, b);
+    Snapshot sa = a.snapshot();
+    Snapshot sb = b.snapshot();
+    long theta = Math.min(sa.theta, sb.theta);
+    long[] values = new long[sa.values.length];
+    int n = 0;
+    for (int i = 0, j = 0; i < sa.values.length && sa.values[i] < theta; i++) {
+      long v = sa.values[i];
+      while (j < sb.values.length && sb.values[j] < v) {
+        j++;
+      }
+      if ((j < sb.values.length && sb.values[j] == v) == inB) {
+        values[n++] = v;
+      }
+    }
+    return fromSorted(inB ? Math.min(a.k, b.k) : a.k, a.seed, theta, values, n);
+  }
+
+  /**
+   * Serializes the sketch: format version, k, seed, theta and the number of values as varints, followed by
+   * the sorted values as varint deltas. Deltas get smaller as more keys are added, values of a sketch of
+   * a million keys take about 7 bytes each.
+   */
+  public byte[] toBytes() {
+    Snapshot s = snapshot();
+    byte[] out = new byte[5 + 5 + 5 + 9 + 5 + s.values.length * 9];
+    int pos = putVarint(out, 0, FORMAT_VERSION);
+    pos = putVarint(out, pos, k);
+    pos = putVarint(out, pos, seed & 0xFFFFFFFFL);
+    pos = putVarint(out, pos, s.theta);
+    pos = putVarint(out, pos, s.values.length);
+    long prev = 0;
+    for (long v : s.values) {
+      pos = putVarint(out, pos, v - prev);
+      prev = v;
+    }
+    return Arrays.copyOf(out, pos);
+  }
+
+  /**
+   * Reads a sketch written by {@link #toBytes()}
+   *
+   * @throws IllegalArgumentException if the bytes are not a valid sketch
+   */
+  public static KmvSketch fromBytes(byte[] bytes) {
+    try {
+      int[] pos = {0};
+      long version = getVarint(bytes, pos);
+      if (version != FORMAT_VERSION) {
+        throw new IllegalArgumentException("Unsupported sketch format version " + version);
+      }
+      long k = getVarint(bytes, pos);
+      long seed = getVarint(bytes, pos);
+      long theta = getVarint(bytes, pos);
+      long n = getVarint(bytes, pos);
+      if (k <= 0 || k > 1 << 28 || seed > 0xFFFFFFFFL || theta < 0 || n < 0 || n > k) {
+        throw new IllegalArgumentException("Malformed sketch header");
+      }
+      // every value takes a byte at least, don't allocate for values which aren't there
+      if (n > bytes.length - pos[0]) {
+        throw new IllegalArgumentException("Truncated sketch");
+      }
+      long[] values = new long[(int) n];
+      long prev = 0;
+      for (int i = 0; i < n; i++) {
+        long delta = getVarint(bytes, pos);
+        if (delta < 0 || (i > 0 && delta == 0) || delta >= theta - prev) {
+          throw new IllegalArgumentException("Malformed sketch values");
+        }
+        prev += delta;
+        values[i] = prev;
+      }
+      if (pos[0] != bytes.length) {
+        throw new IllegalArgumentException("Trailing bytes after sketch");
+      }
+      return fromSorted((int) k, (int) seed, theta, values, values.length);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Truncated sketch", e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "KmvSketch{k=" + k + ", retained=" + retained() + ", theta=" + theta() + ", estimate=" + estimate() + "}";
+  }
+
+  private void insert(long value) {
+    long t = theta;
+    if (value >= t || contains(value)) {
+      return;
+    }
+    if (size < k) {
+      if (size == heap.length) {
+        resize((int) Math.min(k, 2L * size));
+      }
+      setAdd(value);
+      siftUp(size++, value);
+    } else if (value < heap[0]) {
+      // the largest retained value is dropped and becomes the threshold
+      long dropped = heap[0];
+      setRemove(dropped);
+      setAdd(value);
+      siftDown(value);
+      theta = dropped;
+    } else {
+      theta = value;
+    }
+  }
+
+  /** Reallocates the heap and the set for {@code capacity} values */
+  private void resize(int capacity) {
+    heap = Arrays.copyOf(heap, capacity);
+    set = new long[Integer.highestOneBit(capacity) * 4];
+    setMask = set.length - 1;
+    for (int i = 0; i < size; i++) {
+      setAdd(heap[i]);
+    }
+  }
+
+  private void siftUp(int i, long value) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heap[parent] >= value) {
+        break;
+      }
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = value;
+  }
+
+  /** Replaces the root with {@code value} */
+  private void siftDown(long value) {
+    int i = 0;
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && heap[child + 1] > heap[child]) {
+        child++;
+      }
+      if (heap[child] <= value) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = value;
+  }
+
+  private boolean contains(long value) {
+    for (int i = (int) value & setMask; set[i] != 0; i = (i + 1) & setMask) {
+      if (set[i] == value + 1) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void setAdd(long value) {
+    int i = (int) value & setMask;
+    while (set[i] != 0) {
+      i = (i + 1) & setMask;
+    }
+    set[i] = value + 1;
+  }
+
+  /** Backward shift deletion */
+  private void setRemove(long value) {
+    int i = (int) value & setMask;
+    while (set[i] != value + 1) {
+      i = (i + 1) & setMask;
+    }
+    for (int j = (i + 1) & setMask; set[j] != 0; j = (j + 1) & setMask) {
+      int home = (int) (set[j] - 1) & setMask;
+      if (((j - home) & setMask) >= ((j - i) & setMask)) {
+        set[i] = set[j];
+        i = j;
+      }
+    }
+    set[i] = 0;
+  }
+
+  private static final class Snapshot {
+    final long theta;
+    /** Retained values in ascending order */
+    final long[] values;
+
+    Snapshot(long theta, long[] values) {
+      this.theta = theta;
+      this.values = values;
+    }
+  }
+
+  private synchronized Snapshot snapshot() {
+    long[] values = Arrays.copyOf(heap, size);
+    Arrays.sort(values);
+    return new Snapshot(theta, values);
+  }
+
+  /** Sketch retaining the first {@code k} of {@code n} sorted distinct values below {@code theta} */
+  private static KmvSketch fromSorted(int k, int seed, long theta, long[] values, int n) {
+    KmvSketch sketch = new KmvSketch(k, seed, n);
+    if (n > k) {
+      theta = values[k];
+      n = k;
+    }
+    sketch.theta = theta;
+    // ascending order is a valid max-heap when reversed
+    for (int i = 0; i < n; i++) {
+      sketch.heap[i] = values[n - 1 - i];
+      sketch.setAdd(values[i]);
+    }
+    sketch.size = n;
+    return sketch;
+  }
+
+  private static void checkSeeds(KmvSketch a, KmvSketch b) {
+    if (a.seed != b.seed) {
+      throw new IllegalArgumentException("Seeds differ: " + a.seed + " != " + b.seed);
+    }
+  }
+
+  private static double estimate(int retained, long theta) {
+    return theta == EXACT ? retained : retained / fraction(theta);
+  }
+
+  private static double fraction(long theta) {
+    return theta == EXACT ? 1 : theta * 0x1p-63;
+  }
+
+  private static int putVarint(byte[] out, int pos, long v) {
+    while ((v & ~0x7FL) != 0) {
+      out[pos++] = (byte) (v | 0x80);
+      v >>>= 7;
+    }
+    out[pos++] = (byte) v;
+    return pos;
+  }
+
+  private static long getVarint(byte[] in, int[] pos) {
+    long v = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in[pos[0]++];
+      v |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return v;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+}
@@ -0,0 +1,87 @@
+package com.github.eprst.murmur3;
+
+import java.nio.LongBuffer;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * Read-only {@link CuckooFilter} queried in place in a memory-mapped {@link FilterFile}, answering the same as
+ * the filter which was written. Lookups read two longs from the page cache and don't allocate.
+ * <p>
+ * Thread-safe. The mapping is released when the instance is garbage collected.
+ */
+public final class MappedCuckooFilter {
+  private static final int SEGMENT_MASK = (1 << FilterFile.SEGMENT_BITS) - 1;
+
+  private final LongBuffer[] segments;
+  private final int bucketMask;
+  private final int seed;
+  private final long size;
+  private final int victimFingerprint;
+  private final int victimBucket;
+  private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+  private static final class Scratch {
+    final HashCode128 hash = new HashCode128();
+    final byte[] buf19 = new byte[19];
+  }
+
+  MappedCuckooFilter(LongBuffer[] segments, int numBuckets, int seed, long size, int victimFingerprint,
+                     int victimBucket) {
+    this.segments = segments;
+    this.bucketMask = numBuckets - 1;
+    this.seed = seed;
+    this.size = size;
+    this.victimFingerprint = victimFingerprint;
+    this.victimBucket = victimBucket;
+  }
+
+  public int seed() {
+    return seed;
+  }
+
+  /** Number of keys in the filter */
+  public long size() {
+    return size;
+  }
+
+  /** Number of fingerprint slots */
+  public long capacity() {
+    return (bucketMask + 1L) * CuckooFilter.SLOTS;
+  }
+
+  public boolean mightContain(CharSequence key) {
+    Scratch s = scratch.get();
+    CuckooFilter.hashUtf8(key, seed, s.buf19, s.hash);
+    return mightContain(s.hash.val1, s.hash.val2);
+  }
+
+  public boolean mightContain(byte[] key, int offset, int len) {
+    HashCode128 hash = scratch.get().hash;
+    MurmurHash3.murmurhash3_x64_128(key, offset, len, seed, hash);
+    return mightContain(hash.val1, hash.val2);
+  }
+
+  public boolean mightContain(byte[] key) {
+    return mightContain(key, 0, key.length);
+  }
+
+  public boolean mightContain(long key) {
+    HashCode128 hash = scratch.get().hash;
+    MurmurHash3.murmurhash3_x64_128(key, seed, hash);
+    return mightContain(hash.val1, hash.val2);
+  }
+
+  /** Looks up a key by its {@code murmurhash3_x64_128} hash computed with {@link #seed()} */
+  public boolean mightContain(long h1, long h2) {
+    int fp = CuckooFilter.fingerprint(h2);
+    int i1 = CuckooFilter.bucket(h1, bucketMask);
+    int i2 = CuckooFilter.altBucket(i1, fp, bucketMask);
+    return CuckooFilter.contains(bucket(i1), fp) || CuckooFilter.contains(bucket(i2), fp) ||
+           (victimFingerprint == fp && (victimBucket == i1 || victimBucket == i2));
+  }
+
+  private long bucket(int i) {
+    return segments[i >>> FilterFile.SEGMENT_BITS].get(i & SEGMENT_MASK);
+  }
+}
@@ -0,0 +1,168 @@
+package com.github.eprst.murmur3;
+
+import java.util.Arrays;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * MinHash signatures for estimating Jaccard similarity of shingle sets, e.g. for near-duplicate detection.
+ * <p>
+ * Each shingle is hashed once with {@code murmurhash3_x64_128}, and the k hash functions are derived from the two
+ * halves as {@code h1 + i * h2}, so the cost of a shingle is one hash plus k additions and comparisons instead of
+ * k hashes. Signature slot {@code i} holds the minimum of the {@code i}-th hash over all shingles.
+ * <p>
+ * Signatures are plain {@code long[]}s, created by {@link #newSignature()}. Shingles are hashed straight from
+ * the text, without substring allocation. {@link #bandHashes} provides LSH banding: documents with similarity
+ * {@code s} share at least one band hash with probability {@code 1 - (1 - s^rows)^bands}.
+ * <p>
+ * Not thread-safe, use an instance per thread.
+ */
+public final class MinHash {
+  private final int numHashes;
+  private final int seed;
+  private final HashCode128 hash = new HashCode128();
+  private final byte[] buf19 = new byte[19];
+  /** Token boundaries ring for word shingles */
+  private int[] tokenStarts = new int[0];
+  private int[] tokenEnds = new int[0];
+
+  /**
+   * @param numHashes signature length
+   * @param seed shingle hash seed, signatures are only comparable if computed with the same seed
+   */
+  public MinHash(int numHashes, int seed) {
+    if (numHashes <= 0) {
+      throw new IllegalArgumentException("Number of hashes must be positive: " + numHashes);
+    }
+    this.numHashes = numHashes;
+    this.seed = seed;
+  }
+
+  public int numHashes() {
+    return numHashes;
+  }
+
+  /** Returns signature of an empty set */
+  public long[] newSignature() {
+    long[] signature = new long[numHashes];
+    reset(signature);
+    return signature;
+  }
+
+  /** Resets signature to the signature of an empty set */
+  public void reset(long[] signature) {
+    Arrays.fill(signature, Long.MAX_VALUE);
+  }
+
+  /** Adds an element with the given 128-bit hash to the signature */
+  public void add(long[] signature, long h1, long h2) {
+    long h = h1;
+    for (int i = 0; i < numHashes; i++) {
+      if (h < signature[i]) {
+        signature[i] = h;
+      }
+      h += h2;
+    }
+  }
+
+  public void add(long[] signature, HashCode128 hash) {
+    add(signature, hash.val1, hash.val2);
+  }
+
+  /** Adds shingle consisting of {@code len} chars of {@code text} starting at {@code offset} */
+  public void addShingle(long[] signature, CharSequence text, int offset, int len) {
+    MurmurHash3.murmurhash3_x64_128_safe_ascii(text, offset, len, seed, buf19, hash);
+    add(signature, hash.val1, hash.val2);
+  }
+
+  /** Adds all shingles of {@code shingleSize} consecutive chars */
+  public void addCharShingles(long[] signature, CharSequence text, int shingleSize) {
+    for (int i = 0, last = text.length() - shingleSize; i <= last; i++) {
+      addShingle(signature, text, i, shingleSize);
+    }
+  }
+
+  /**
+   * Adds all shingles of {@code shingleSize} consecutive words, words being separated by whitespace. Shingle is
+   * hashed as the text span from the start of its first word to the end of the last one, so whitespace between
+   * the words is a part of it. Texts with fewer words produce a single shingle of all the words.
+   */
+  public void addWordShingles(long[] signature, CharSequence text, int shingleSize) {
+    if (tokenStarts.length < shingleSize) {
+      tokenStarts = new int[shingleSize];
+      tokenEnds = new int[shingleSize];
+    }
+    int tokens = 0;
+    int pos = 0;
+    int len = text.length();
+    while (true) {
+      while (pos < len && Character.isWhitespace(text.charAt(pos))) {
+        pos++;
+      }
+      if (pos == len) {
+        break;
+      }
+      int start = pos;
+      while (pos < len && !Character.isWhitespace(text.charAt(pos))) {
+        pos++;
+      }
+      int slot = tokens % shingleSize;
+      tokenStarts[slot] = start;
+      tokenEnds[slot] = pos;
+      tokens++;
+      if (tokens >= shingleSize) {
+        int first = tokenStarts[tokens % shingleSize];
+        addShingle(signature, text, first, pos - first);
+      }
+    }
+    if (tokens > 0 && tokens < shingleSize) {
+      addShingle(signature, text, tokenStarts[0], tokenEnds[tokens - 1] - tokenStarts[0]);
+    }
+  }
+
+  /** Estimated Jaccard similarity: fraction of equal signature slots */
+  public static double similarity(long[] a, long[] b) {
+    if (a.length != b.length) {
+      throw new IllegalArgumentException("Signature lengths differ: " + a.length + " != " + b.length);
+    }
+    int equal = 0;
+    for (int i = 0; i < a.length; i++) {
+      if (a[i] == b[i]) {
+        equal++;
+      }
+    }
+    return (double) equal / a.length;
+  }
+
+  /** Merges signature {@code other} into {@code signature}, making it the signature of the union of the sets */
+  public static void union(long[] signature, long[] other) {
+    for (int i = 0; i < signature.length; i++) {
+      signature[i] = Math.min(signature[i], other[i]);
+    }
+  }
+
+  /**
+   * Computes LSH band hashes: signature is split into {@code bands} bands of {@code signature.length / bands}
+   * rows each, and every band is hashed with {@code murmurhash3_x64_128}. Candidate pairs are documents with
+   * at least one equal band hash at the same index.
+   *
+   * @param out output array of at least {@code bands} elements
+   */
+  public static long[] bandHashes(long[] signature, int bands, int seed, long[] out) {
+    if (bands <= 0 || signature.length % bands != 0) {
+      throw new IllegalArgumentException("Signature length " + signature.length + " is not divisible by " + bands);
+    }
+    int rows = signature.length / bands;
+    HashCode128 bandHash = new HashCode128();
+    for (int b = 0; b < bands; b++) {
+      MurmurHash3.murmurhash3_x64_128(signature, b * rows, rows, seed + b, bandHash);
+      out[b] = bandHash.val1;
+    }
+    return out;
+  }
+
+  /** Probability of two documents with similarity {@code s} becoming a candidate pair with the given banding */
+  public static double candidateProbability(double s, int bands, int rows) {
+    return 1 - Math.pow(1 - Math.pow(s, rows), bands);
+  }
+}
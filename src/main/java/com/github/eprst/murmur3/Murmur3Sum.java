@@ -0,0 +1,398 @@
+package com.github.eprst.murmur3;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * {@code md5sum}-like tool computing {@code murmurhash3_x64_128} of files and directory trees.
+ * <pre>
+ * java -jar murmur3-&lt;version&gt;-cli.jar [-t threads] [-s seed] path... &gt; sums
+ * java -jar murmur3-&lt;version&gt;-cli.jar [-t threads] [-s seed] -c sums
+ * </pre>
+ * Directories are walked and hashed in parallel, output has a {@code hash  path} line per file sorted by path,
+ * followed by {@code # aggregate hash} line, which is an {@link UnorderedHasher} hash of all paths and file hashes.
+ * As in {@code md5sum}, lines of paths with a backslash or a line break start with a backslash, and those characters
+ * are escaped as {@code \\}, {@code \n} and {@code \r}.
+ * In check mode ({@code -c}) such output is read back, every file is hashed again and reported as
+ * {@code OK} or {@code FAILED}, the aggregate hash is verified too.
+ * <p>
+ * Files smaller than {@value #MAP_THRESHOLD} bytes are read into a reusable per-thread buffer, larger ones are
+ * memory-mapped.
+ */
+public final class Murmur3Sum {
+  static final int MAP_THRESHOLD = 1 << 16;
+  private static final int MAX_SEGMENT_SIZE = 1 << 30;
+  private static final String AGGREGATE_PREFIX = "# aggregate ";
+
+  /** File hash or an error if the file couldn't be read */
+  public static final class Entry {
+    public final String path;
+    public final HashCode128 hash;
+    public final IOException error;
+
+    Entry(String path, HashCode128 hash, IOException error) {
+      this.path = path;
+      this.hash = hash;
+      this.error = error;
+    }
+  }
+
+  private final int seed;
+  private final ForkJoinPool pool;
+  private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAP_THRESHOLD));
+  private final ThreadLocal<HashingSink128> sinks;
+
+  public Murmur3Sum(int seed, ForkJoinPool pool) {
+    this.seed = seed;
+    this.pool = pool;
+    this.sinks = ThreadLocal.withInitial(() -> new HashingSink128(seed));
+  }
+
+  /** Same as {@code murmurhash3_x64_128} of file contents */
+  public HashCode128 hashFile(Path file) throws IOException {
+    HashCode128 result = new HashCode128();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < MAP_THRESHOLD) {
+        hashStream(channel, result);
+      } else if (size <= MAX_SEGMENT_SIZE) {
+        ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        MurmurHash3.murmurhash3_x64_128(mapped, 0, (int) size, seed, result);
+      } else {
+        // the sink may hold state of a file which failed to read on this thread
+        HashingSink128 sink = sinks.get().reset();
+        for (long position = 0; position < size; position += MAX_SEGMENT_SIZE) {
+          long segmentSize = Math.min(MAX_SEGMENT_SIZE, size - position);
+          sink.putBytes(channel.map(FileChannel.MapMode.READ_ONLY, position, segmentSize));
+        }
+        sink.finish(result);
+      }
+    }
+    return result;
+  }
+
+  /** Hashes {@code channel} till the end through the per-thread buffer */
+  void hashStream(ReadableByteChannel channel, HashCode128 result) throws IOException {
+    // the sink may hold state of a file which failed to read on this thread
+    HashingSink128 sink = sinks.get().reset();
+    ByteBuffer buffer = buffers.get();
+    buffer.clear();
+    while (channel.read(buffer) >= 0) {
+      buffer.flip();
+      sink.putBytes(buffer);
+      buffer.clear();
+    }
+    sink.finish(result);
+  }
+
+  /**
+   * Hashes files and all regular files found in directories in parallel. Symbolic links are not followed.
+   *
+   * @return entries sorted by path
+   */
+  public List<Entry> hash(Collection<Path> paths) {
+    Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+    pool.invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Path path : paths) {
+          tasks.add(Files.isDirectory(path) ? new DirectoryTask(path, entries) : new FileTask(path, entries));
+        }
+        invokeAll(tasks);
+      }
+    });
+    return sorted(entries);
+  }
+
+  /** Hashes the files in parallel, entries are returned in the same order */
+  public List<Entry> hashFiles(List<String> paths) {
+    Entry[] entries = new Entry[paths.size()];
+    pool.invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+          int index = i;
+          String path = paths.get(i);
+          tasks.add(ForkJoinTask.adapt(() -> {
+            entries[index] = hashEntry(path, Paths.get(path));
+          }));
+        }
+        invokeAll(tasks);
+      }
+    });
+    return Arrays.asList(entries);
+  }
+
+  /** Order-independent hash of paths and hashes of all successfully hashed entries */
+  public HashCode128 aggregate(List<Entry> entries) {
+    UnorderedHasher hasher = new UnorderedHasher(seed);
+    HashingSink128 sink = new HashingSink128(seed);
+    HashCode128 entryHash = new HashCode128();
+    for (Entry e : entries) {
+      if (e.hash != null) {
+        sink.putUtf8String(e.path, 0, e.path.length()).putByte((byte) 0).putMurmurHash3(e.hash).finish(entryHash);
+        hasher.add(entryHash);
+      }
+    }
+    return hasher.finish();
+  }
+
+  private Entry hashEntry(String name, Path path) {
+    try {
+      return new Entry(name, hashFile(path), null);
+    } catch (IOException e) {
+      return new Entry(name, null, e);
+    }
+  }
+
+  private static List<Entry> sorted(Collection<Entry> entries) {
+    List<Entry> result = new ArrayList<>(entries);
+    result.sort(Comparator.comparing(e -> e.path));
+    return result;
+  }
+
+  private final class FileTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Path file;
+    private final Queue<Entry> entries;
+
+    FileTask(Path file, Queue<Entry> entries) {
+      this.file = file;
+      this.entries = entries;
+    }
+
+    @Override
+    protected void compute() {
+      entries.add(hashEntry(file.toString(), file));
+    }
+  }
+
+  private final class DirectoryTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Path dir;
+    private final Queue<Entry> entries;
+
+    DirectoryTask(Path dir, Queue<Entry> entries) {
+      this.dir = dir;
+      this.entries = entries;
+    }
+
+    @Override
+    protected void compute() {
+      List<ForkJoinTask<?>> tasks = new ArrayList<>();
+      try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+        for (Path child : children) {
+          BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+          if (attrs.isDirectory()) {
+            tasks.add(new DirectoryTask(child, entries));
+          } else if (attrs.isRegularFile()) {
+            tasks.add(new FileTask(child, entries));
+          }
+        }
+      } catch (IOException e) {
+        entries.add(new Entry(dir.toString(), null, e));
+      }
+      invokeAll(tasks);
+    }
+  }
+
+  public static void main(String[] args) {
+    int status = run(args, System.out, System.err);
+    if (status != 0) {
+      System.exit(status);
+    }
+  }
+
+  /** Runs the tool, returns process exit status */
+  static int run(String[] args, PrintStream out, PrintStream err) {
+    int threads = Runtime.getRuntime().availableProcessors();
+    int seed = 0;
+    boolean check = false;
+    List<Path> paths = new ArrayList<>();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "-t":
+            threads = Integer.parseInt(args[++i]);
+            break;
+          case "-s":
+            seed = Integer.parseInt(args[++i]);
+            break;
+          case "-c":
+            check = true;
+            break;
+          default:
+            paths.add(Paths.get(args[i]));
+        }
+      }
+      if (paths.isEmpty() || threads <= 0) {
+        throw new IllegalArgumentException();
+      }
+    } catch (RuntimeException e) {
+      err.println("Usage: murmur3sum [-t threads] [-s seed] path...");
+      err.println("       murmur3sum [-t threads] [-s seed] -c file...");
+      return 2;
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      Murmur3Sum sum = new Murmur3Sum(seed, pool);
+      return check ? sum.check(paths, out, err) : sum.print(paths, out, err);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private int print(List<Path> paths, PrintStream out, PrintStream err) {
+    List<Entry> entries = hash(paths);
+    int status = 0;
+    for (Entry e : entries) {
+      if (e.error != null) {
+        err.println(e.path + ": " + e.error);
+        status = 1;
+      } else {
+        out.println(needsEscape(e.path) ? "\\" + e.hash + "  " + escape(e.path) : e.hash + "  " + e.path);
+      }
+    }
+    out.println(AGGREGATE_PREFIX + aggregate(entries));
+    return status;
+  }
+
+  private int check(List<Path> sumFiles, PrintStream out, PrintStream err) {
+    int failed = 0;
+    for (Path sumFile : sumFiles) {
+      List<String> names = new ArrayList<>();
+      List<HashCode128> expected = new ArrayList<>();
+      HashCode128 expectedAggregate = null;
+      try (BufferedReader reader = Files.newBufferedReader(sumFile, StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.startsWith(AGGREGATE_PREFIX)) {
+            expectedAggregate = HashCode128.parseHex(line, AGGREGATE_PREFIX.length(), new HashCode128());
+          } else if (!line.isEmpty()) {
+            boolean escaped = line.startsWith("\\");
+            int start = escaped ? 1 : 0;
+            if (line.length() < start + HashCode128.HEX_LENGTH + 3 ||
+                !line.startsWith("  ", start + HashCode128.HEX_LENGTH)) {
+              throw new IOException("Malformed line: " + line);
+            }
+            expected.add(HashCode128.parseHex(line, start, new HashCode128()));
+            String name = line.substring(start + HashCode128.HEX_LENGTH + 2);
+            names.add(escaped ? unescape(name) : name);
+          }
+        }
+      } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+        err.println(sumFile + ": " + e);
+        failed++;
+        continue;
+      }
+
+      List<Entry> entries = hashFiles(names);
+      for (int i = 0; i < entries.size(); i++) {
+        Entry e = entries.get(i);
+        String path = needsEscape(e.path) ? "\\" + escape(e.path) : e.path;
+        if (e.error != null) {
+          out.println(path + ": FAILED open or read");
+          failed++;
+        } else if (!e.hash.equals(expected.get(i))) {
+          out.println(path + ": FAILED");
+          failed++;
+        } else {
+          out.println(path + ": OK");
+        }
+      }
+      if (expectedAggregate != null) {
+        if (aggregate(entries).equals(expectedAggregate)) {
+          out.println(sumFile + " aggregate: OK");
+        } else {
+          out.println(sumFile + " aggregate: FAILED");
+          failed++;
+        }
+      }
+    }
+    if (failed > 0) {
+      err.println("WARNING: " + failed + " checks FAILED");
+      return 1;
+    }
+    return 0;
+  }
+
+  private static boolean needsEscape(String path) {
+    return path.indexOf('\\') >= 0 || path.indexOf('\n') >= 0 || path.indexOf('\r') >= 0;
+  }
+
+  /** Escapes backslashes and line breaks */
+  static String escape(String path) {
+    StringBuilder sb = new StringBuilder(path.length() + 8);
+    for (int i = 0; i < path.length(); i++) {
+      char c = path.charAt(i);
+      switch (c) {
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  /** Reverse of {@link #escape} */
+  static String unescape(String path) throws IOException {
+    StringBuilder sb = new StringBuilder(path.length());
+    for (int i = 0; i < path.length(); i++) {
+      char c = path.charAt(i);
+      if (c == '\\') {
+        char next = ++i < path.length() ? path.charAt(i) : 0;
+        switch (next) {
+          case '\\':
+            break;
+          case 'n':
+            c = '\n';
+            break;
+          case 'r':
+            c = '\r';
+            break;
+          default:
+            throw new IOException("Malformed escape sequence in " + path);
+        }
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+}
@@ -1,5 +1,11 @@
 package com.github.eprst.murmur3;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
 /**
  * The MurmurHash3 algorithm was created by Austin Appleby and placed in the public domain.
  * This java port was authored by Yonik Seeley and also placed into the public domain.
@@ -80,22 +86,207 @@ public final class MurmurHash3 {
 
     @Override
     public final String toString() {
-      byte[] bytes = getBytes();
-      StringBuilder sb = new StringBuilder(2 * bytes.length);
-      for (byte b : bytes) {
-        sb.append(hexDigits[(b >> 4) & 0xf]).append(hexDigits[b & 0xf]);
+      char[] chars = new char[HEX_LENGTH];
+      writeHex(chars, 0);
+      return new String(chars);
+    }
+
+    // Allocation-free encoding. Byte order is the same as in getBytes(), hex is the same as toString(),
+    // base64 is URL-safe (RFC 4648 section 5) and has no padding.
+
+    /** Writes 16 bytes of the hash to {@code dst} starting at {@code offset}, returns offset after the last byte */
+    public int writeBytes(byte[] dst, int offset) {
+      for (int i = 0; i < 16; i++) {
+        dst[offset + i] = (byte) byteAt(i);
+      }
+      return offset + 16;
+    }
+
+    /** Writes 16 bytes of the hash at {@code dst} position, regardless of its byte order */
+    public ByteBuffer writeBytes(ByteBuffer dst) {
+      for (int i = 0; i < 16; i++) {
+        dst.put((byte) byteAt(i));
+      }
+      return dst;
+    }
+
+    /** Writes 32 lowercase hex digits to {@code dst} starting at {@code offset}, returns offset after the last one */
+    public int writeHex(char[] dst, int offset) {
+      for (int i = 0; i < HEX_LENGTH; i++) {
+        dst[offset + i] = hexChar(i);
+      }
+      return offset + HEX_LENGTH;
+    }
+
+    /** Writes 32 lowercase ASCII hex digits to {@code dst} starting at {@code offset}, returns offset after the last one */
+    public int writeHex(byte[] dst, int offset) {
+      for (int i = 0; i < HEX_LENGTH; i++) {
+        dst[offset + i] = (byte) hexChar(i);
+      }
+      return offset + HEX_LENGTH;
+    }
+
+    /** Writes 32 lowercase ASCII hex digits at {@code dst} position */
+    public ByteBuffer writeHex(ByteBuffer dst) {
+      for (int i = 0; i < HEX_LENGTH; i++) {
+        dst.put((byte) hexChar(i));
+      }
+      return dst;
+    }
+
+    /** Appends 32 lowercase hex digits to {@code sb} */
+    public StringBuilder appendHex(StringBuilder sb) {
+      for (int i = 0; i < HEX_LENGTH; i++) {
+        sb.append(hexChar(i));
+      }
+      return sb;
+    }
+
+    /** Writes 22 base64 characters to {@code dst} starting at {@code offset}, returns offset after the last one */
+    public int writeBase64(char[] dst, int offset) {
+      for (int i = 0; i < BASE64_LENGTH; i++) {
+        dst[offset + i] = base64Char(i);
+      }
+      return offset + BASE64_LENGTH;
+    }
+
+    /** Writes 22 ASCII base64 characters to {@code dst} starting at {@code offset}, returns offset after the last one */
+    public int writeBase64(byte[] dst, int offset) {
+      for (int i = 0; i < BASE64_LENGTH; i++) {
+        dst[offset + i] = (byte) base64Char(i);
+      }
+      return offset + BASE64_LENGTH;
+    }
+
+    /** Writes 22 ASCII base64 characters at {@code dst} position */
+    public ByteBuffer writeBase64(ByteBuffer dst) {
+      for (int i = 0; i < BASE64_LENGTH; i++) {
+        dst.put((byte) base64Char(i));
+      }
+      return dst;
+    }
+
+    /** Appends 22 base64 characters to {@code sb} */
+    public StringBuilder appendBase64(StringBuilder sb) {
+      for (int i = 0; i < BASE64_LENGTH; i++) {
+        sb.append(base64Char(i));
       }
-      return sb.toString();
+      return sb;
+    }
+
+    /** i-th byte of the hash in {@link #getBytes()} order, zero past the end */
+    private int byteAt(int i) {
+      return i < 16 ? (int) ((i < 8 ? val1 : val2) >>> ((i & 7) << 3)) & 0xff : 0;
+    }
+
+    private char hexChar(int i) {
+      int b = byteAt(i >> 1);
+      return hexDigits[(i & 1) == 0 ? b >> 4 : b & 0xf];
+    }
+
+    private char base64Char(int i) {
+      // every 4 chars encode 3 bytes, last 2 chars encode the 16th byte
+      int b = (i >> 2) * 3;
+      int triple = byteAt(b) << 16 | byteAt(b + 1) << 8 | byteAt(b + 2);
+      return base64Digits[(triple >>> (18 - 6 * (i & 3))) & 63];
     }
 
     public static MurmurHash3.HashCode128 fromBytes(byte[] bytes) {
-      return new HashCode128(
-          getLongLittleEndian(bytes, 0),
-          getLongLittleEndian(bytes, 8)
-      );
+      return fromBytes(bytes, 0, new HashCode128());
+    }
+
+    /** Reads 16 bytes written by {@link #writeBytes(byte[], int)} into {@code out} */
+    public static MurmurHash3.HashCode128 fromBytes(byte[] bytes, int offset, HashCode128 out) {
+      out.val1 = getLongLittleEndian(bytes, offset);
+      out.val2 = getLongLittleEndian(bytes, offset + 8);
+      return out;
+    }
+
+    /**
+     * Parses 32 hex digits starting at {@code offset}, as written by {@link #writeHex(char[], int)}, into {@code out}.
+     *
+     * @throws IllegalArgumentException if there's a non-hex character
+     */
+    public static MurmurHash3.HashCode128 parseHex(CharSequence s, int offset, HashCode128 out) {
+      long v1 = 0;
+      long v2 = 0;
+      for (int i = 0; i < 8; i++) {
+        v1 |= (long) (hexValue(s, offset + 2 * i) << 4 | hexValue(s, offset + 2 * i + 1)) << (i << 3);
+        v2 |= (long) (hexValue(s, offset + 16 + 2 * i) << 4 | hexValue(s, offset + 16 + 2 * i + 1)) << (i << 3);
+      }
+      out.val1 = v1;
+      out.val2 = v2;
+      return out;
+    }
+
+    /**
+     * Parses 22 base64 characters starting at {@code offset}, as written by {@link #writeBase64(char[], int)},
+     * into {@code out}.
+     *
+     * @throws IllegalArgumentException if there's a character which is not URL-safe base64, or the last one
+     *                                  has unused low bits set, so that every hash has a single valid encoding
+     */
+    public static MurmurHash3.HashCode128 parseBase64(CharSequence s, int offset, HashCode128 out) {
+      long v1 = 0;
+      long v2 = 0;
+      for (int g = 0; g < 5; g++) {
+        int pos = offset + 4 * g;
+        long triple = base64Value(s, pos) << 18 | base64Value(s, pos + 1) << 12 |
+                      base64Value(s, pos + 2) << 6 | base64Value(s, pos + 3);
+        for (int j = 0; j < 3; j++) {
+          int b = 3 * g + j;
+          long v = ((triple >>> (16 - 8 * j)) & 0xff) << ((b & 7) << 3);
+          if (b < 8) {
+            v1 |= v;
+          } else {
+            v2 |= v;
+          }
+        }
+      }
+      int tail = base64Value(s, offset + 21);
+      if ((tail & 0xf) != 0) {
+        throw new IllegalArgumentException("Unused bits set in base64 character at " + (offset + 21));
+      }
+      int last = base64Value(s, offset + 20) << 2 | tail >> 4;
+      v2 |= (long) last << 56;
+      out.val1 = v1;
+      out.val2 = v2;
+      return out;
+    }
+
+    private static int hexValue(CharSequence s, int pos) {
+      char c = s.charAt(pos);
+      if (c >= '0' && c <= '9') return c - '0';
+      if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+      if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+      throw new IllegalArgumentException("Illegal hex character '" + c + "' at " + pos);
+    }
+
+    private static int base64Value(CharSequence s, int pos) {
+      char c = s.charAt(pos);
+      int v = c < base64Values.length ? base64Values[c] : -1;
+      if (v < 0) {
+        throw new IllegalArgumentException("Illegal base64 character '" + c + "' at " + pos);
+      }
+      return v;
     }
 
+    /** Length of the hex representation */
+    public static final int HEX_LENGTH = 32;
+    /** Length of the base64 representation */
+    public static final int BASE64_LENGTH = 22;
+
     private static final char[] hexDigits = "0123456789abcdef".toCharArray();
+    private static final char[] base64Digits =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final int[] base64Values = new int[128];
+
+    static {
+      Arrays.fill(base64Values, -1);
+      for (int i = 0; i < base64Digits.length; i++) {
+        base64Values[base64Digits[i]] = i;
+      }
+    }
   }
 
   public static int fmix32(int h) {
@@ -398,6 +589,422 @@ public final class MurmurHash3 {
     out.val2 = h2;
   }
 
+  /**
+   * Returns the MurmurHash3_x64_128 hash of {@code len} bytes of {@code data} starting at absolute index
+   * {@code offset}, placing the result in "out". Buffer position, limit and byte order are not changed.
+   */
+  public static void murmurhash3_x64_128(ByteBuffer data, int offset, int len, int seed, HashCode128 out) {
+    final Object event = len >= HashingEvents.THRESHOLD ? HashingEvents.begin() : null;
+    x64_128_buffer(data, offset, len, seed, out);
+    HashingEvents.end(event, "MurmurHash3.murmurhash3_x64_128(ByteBuffer)", len);
+  }
+
+  /** Same as {@link #murmurhash3_x64_128(ByteBuffer, int, int, int, HashCode128)} without JFR events */
+  static void x64_128_buffer(ByteBuffer data, int offset, int len, int seed, HashCode128 out) {
+    final ByteBuffer key =
+        data.order() == ByteOrder.LITTLE_ENDIAN ? data : data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+    // The original algorithm does have a 32 bit unsigned seed.
+    // We have to mask to match the behavior of the unsigned types and prevent sign extension.
+    long h1 = seed & 0x00000000FFFFFFFFL;
+    long h2 = seed & 0x00000000FFFFFFFFL;
+
+    int roundedEnd = offset + (len & 0xFFFFFFF0);  // round down to 16 byte block
+    for (int i = offset; i < roundedEnd; i += 16) {
+      long k1 = key.getLong(i);
+      long k2 = key.getLong(i + 8);
+      k1 *= c1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= c2;
+      h1 ^= k1;
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+      k2 *= c2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= c1;
+      h2 ^= k2;
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    long k1 = 0;
+    long k2 = 0;
+
+    switch (len & 15) {
+      case 15:
+        k2 = (key.get(roundedEnd + 14) & 0xffL) << 48;
+      case 14:
+        k2 |= (key.get(roundedEnd + 13) & 0xffL) << 40;
+      case 13:
+        k2 |= (key.get(roundedEnd + 12) & 0xffL) << 32;
+      case 12:
+        k2 |= (key.get(roundedEnd + 11) & 0xffL) << 24;
+      case 11:
+        k2 |= (key.get(roundedEnd + 10) & 0xffL) << 16;
+      case 10:
+        k2 |= (key.get(roundedEnd + 9) & 0xffL) << 8;
+      case 9:
+        k2 |= (key.get(roundedEnd + 8) & 0xffL);
+        k2 *= c2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= c1;
+        h2 ^= k2;
+      case 8:
+        k1 = ((long) key.get(roundedEnd + 7)) << 56;
+      case 7:
+        k1 |= (key.get(roundedEnd + 6) & 0xffL) << 48;
+      case 6:
+        k1 |= (key.get(roundedEnd + 5) & 0xffL) << 40;
+      case 5:
+        k1 |= (key.get(roundedEnd + 4) & 0xffL) << 32;
+      case 4:
+        k1 |= (key.get(roundedEnd + 3) & 0xffL) << 24;
+      case 3:
+        k1 |= (key.get(roundedEnd + 2) & 0xffL) << 16;
+      case 2:
+        k1 |= (key.get(roundedEnd + 1) & 0xffL) << 8;
+      case 1:
+        k1 |= (key.get(roundedEnd) & 0xffL);
+        k1 *= c1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= c2;
+        h1 ^= k1;
+    }
+
+    //----------
+    // finalization
+
+    h1 ^= len;
+    h2 ^= len;
+
+    h1 += h2;
+    h2 += h1;
+
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+
+    h1 += h2;
+    h2 += h1;
+
+    out.val1 = h1;
+    out.val2 = h2;
+  }
+
+  // Primitive array versions. Results are the same as hashing little-endian encoding of the data, as
+  // written by HashingSink128.putLong and friends, but without encoding whole words byte by byte.
+  // As in the reference implementation, the length is mixed in as a 32-bit int, which wraps for data
+  // over 2 GiB, both here and in HashingSink128.
+
+  /**
+   * Returns the MurmurHash3_x64_128 hash of the little-endian bytes of {@code len} longs starting at {@code offset},
+   * placing the result in "out".
+   */
+  public static void murmurhash3_x64_128(long[] data, int offset, int len, int seed, HashCode128 out) {
+    // The original algorithm does have a 32 bit unsigned seed.
+    // We have to mask to match the behavior of the unsigned types and prevent sign extension.
+    long h1 = seed & 0x00000000FFFFFFFFL;
+    long h2 = seed & 0x00000000FFFFFFFFL;
+
+    int roundedEnd = offset + (len & 0xFFFFFFFE);  // round down to 2 longs block
+    for (int i = offset; i < roundedEnd; i += 2) {
+      long k1 = data[i];
+      long k2 = data[i + 1];
+      k1 *= c1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= c2;
+      h1 ^= k1;
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+      k2 *= c2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= c1;
+      h2 ^= k2;
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    if ((len & 1) != 0) {
+      long k1 = data[roundedEnd];
+      k1 *= c1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= c2;
+      h1 ^= k1;
+    }
+
+    int bytes = len << 3;
+
+    //----------
+    // finalization
+
+    h1 ^= bytes;
+    h2 ^= bytes;
+
+    h1 += h2;
+    h2 += h1;
+
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+
+    h1 += h2;
+    h2 += h1;
+
+    out.val1 = h1;
+    out.val2 = h2;
+  }
+
+  /**
+   * Returns the MurmurHash3_x64_128 hash of the little-endian bytes of raw bits of {@code len} doubles starting
+   * at {@code offset}, see {@link Double#doubleToRawLongBits}. Results are placed in "out".
+   */
+  public static void murmurhash3_x64_128(double[] data, int offset, int len, int seed, HashCode128 out) {
+    // The original algorithm does have a 32 bit unsigned seed.
+    // We have to mask to match the behavior of the unsigned types and prevent sign extension.
+    long h1 = seed & 0x00000000FFFFFFFFL;
+    long h2 = seed & 0x00000000FFFFFFFFL;
+
+    int roundedEnd = offset + (len & 0xFFFFFFFE);  // round down to 2 doubles block
+    for (int i = offset; i < roundedEnd; i += 2) {
+      long k1 = Double.doubleToRawLongBits(data[i]);
+      long k2 = Double.doubleToRawLongBits(data[i + 1]);
+      k1 *= c1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= c2;
+      h1 ^= k1;
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+      k2 *= c2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= c1;
+      h2 ^= k2;
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    if ((len & 1) != 0) {
+      long k1 = Double.doubleToRawLongBits(data[roundedEnd]);
+      k1 *= c1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= c2;
+      h1 ^= k1;
+    }
+
+    int bytes = len << 3;
+
+    //----------
+    // finalization
+
+    h1 ^= bytes;
+    h2 ^= bytes;
+
+    h1 += h2;
+    h2 += h1;
+
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+
+    h1 += h2;
+    h2 += h1;
+
+    out.val1 = h1;
+    out.val2 = h2;
+  }
+
+  /**
+   * Returns the MurmurHash3_x64_128 hash of the little-endian bytes of {@code len} ints starting at {@code offset},
+   * placing the result in "out".
+   */
+  public static void murmurhash3_x64_128(int[] data, int offset, int len, int seed, HashCode128 out) {
+    // The original algorithm does have a 32 bit unsigned seed.
+    // We have to mask to match the behavior of the unsigned types and prevent sign extension.
+    long h1 = seed & 0x00000000FFFFFFFFL;
+    long h2 = seed & 0x00000000FFFFFFFFL;
+
+    int roundedEnd = offset + (len & 0xFFFFFFFC);  // round down to 4 ints block
+    for (int i = offset; i < roundedEnd; i += 4) {
+      long k1 = (data[i] & 0xffffffffL) | ((long) data[i + 1] << 32);
+      long k2 = (data[i + 2] & 0xffffffffL) | ((long) data[i + 3] << 32);
+      k1 *= c1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= c2;
+      h1 ^= k1;
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+      k2 *= c2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= c1;
+      h2 ^= k2;
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    long k1 = 0;
+    long k2 = 0;
+
+    switch (len & 3) {
+      case 3:
+        k2 = data[roundedEnd + 2] & 0xffffffffL;
+        k2 *= c2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= c1;
+        h2 ^= k2;
+      case 2:
+        k1 = (long) data[roundedEnd + 1] << 32;
+      case 1:
+        k1 |= data[roundedEnd] & 0xffffffffL;
+        k1 *= c1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= c2;
+        h1 ^= k1;
+    }
+
+    int bytes = len << 2;
+
+    //----------
+    // finalization
+
+    h1 ^= bytes;
+    h2 ^= bytes;
+
+    h1 += h2;
+    h2 += h1;
+
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+
+    h1 += h2;
+    h2 += h1;
+
+    out.val1 = h1;
+    out.val2 = h2;
+  }
+
+  /**
+   * Returns the MurmurHash3_x64_128 hash of the little-endian bytes of {@code len} shorts starting at {@code offset},
+   * placing the result in "out".
+   */
+  public static void murmurhash3_x64_128(short[] data, int offset, int len, int seed, HashCode128 out) {
+    // The original algorithm does have a 32 bit unsigned seed.
+    // We have to mask to match the behavior of the unsigned types and prevent sign extension.
+    long h1 = seed & 0x00000000FFFFFFFFL;
+    long h2 = seed & 0x00000000FFFFFFFFL;
+
+    int roundedEnd = offset + (len & 0xFFFFFFF8);  // round down to 8 shorts block
+    for (int i = offset; i < roundedEnd; i += 8) {
+      long k1 = (data[i] & 0xffffL)
+                | ((data[i + 1] & 0xffffL) << 16)
+                | ((data[i + 2] & 0xffffL) << 32)
+                | ((long) data[i + 3] << 48);
+      long k2 = (data[i + 4] & 0xffffL)
+                | ((data[i + 5] & 0xffffL) << 16)
+                | ((data[i + 6] & 0xffffL) << 32)
+                | ((long) data[i + 7] << 48);
+      k1 *= c1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= c2;
+      h1 ^= k1;
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+      k2 *= c2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= c1;
+      h2 ^= k2;
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    long k1 = 0;
+    long k2 = 0;
+
+    switch (len & 7) {
+      case 7:
+        k2 = (data[roundedEnd + 6] & 0xffffL) << 32;
+      case 6:
+        k2 |= (data[roundedEnd + 5] & 0xffffL) << 16;
+      case 5:
+        k2 |= data[roundedEnd + 4] & 0xffffL;
+        k2 *= c2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= c1;
+        h2 ^= k2;
+      case 4:
+        k1 = (long) data[roundedEnd + 3] << 48;
+      case 3:
+        k1 |= (data[roundedEnd + 2] & 0xffffL) << 32;
+      case 2:
+        k1 |= (data[roundedEnd + 1] & 0xffffL) << 16;
+      case 1:
+        k1 |= data[roundedEnd] & 0xffffL;
+        k1 *= c1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= c2;
+        h1 ^= k1;
+    }
+
+    int bytes = len << 1;
+
+    //----------
+    // finalization
+
+    h1 ^= bytes;
+    h2 ^= bytes;
+
+    h1 += h2;
+    h2 += h1;
+
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+
+    h1 += h2;
+    h2 += h1;
+
+    out.val1 = h1;
+    out.val2 = h2;
+  }
+
+  /**
+   * Returns the MurmurHash3_x64_128 hash of the 8 little-endian bytes of {@code key}, placing the result in "out".
+   */
+  public static void murmurhash3_x64_128(long key, int seed, HashCode128 out) {
+    // The original algorithm does have a 32 bit unsigned seed.
+    // We have to mask to match the behavior of the unsigned types and prevent sign extension.
+    long h1 = seed & 0x00000000FFFFFFFFL;
+    long h2 = seed & 0x00000000FFFFFFFFL;
+
+    long k1 = key;
+    k1 *= c1;
+    k1 = Long.rotateLeft(k1, 31);
+    k1 *= c2;
+    h1 ^= k1;
+
+    //----------
+    // finalization
+
+    h1 ^= 8;
+    h2 ^= 8;
+
+    h1 += h2;
+    h2 += h1;
+
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+
+    h1 += h2;
+    h2 += h1;
+
+    out.val1 = h1;
+    out.val2 = h2;
+  }
+
   // String-optimized 128-bit version added by konstantin.sobolev@gmail.com
 
   /**
@@ -412,18 +1019,24 @@ public final class MurmurHash3 {
    * @param out output pair to write results to
    */
   public static void murmurhash3_x64_128(CharSequence data, int offset, int len, int seed, byte[] buf19, HashCode128 out) {
-    final byte[] encoded = buf19 == null ? new byte[19] : buf19;
-
     // The original algorithm does have a 32 bit unsigned seed.
     // We have to mask to match the behavior of the unsigned types and prevent sign extension.
     long h1 = seed & 0x00000000FFFFFFFFL;
     long h2 = seed & 0x00000000FFFFFFFFL;
 
-    int encOffset = 0;
-    int bytes = 0;
+    x64_128_utf8(data, offset, offset + len, h1, h2, 0, buf19, out);
+  }
 
-    int pos = offset;
-    int end = offset + len;
+  /**
+   * UTF-8 encoding loop of {@link #murmurhash3_x64_128(CharSequence, int, int, int, byte[], HashCode128)}, resumable
+   * from any 16-byte block boundary: {@code h1}, {@code h2} and {@code bytes} carry the state of the blocks
+   * already mixed.
+   */
+  private static void x64_128_utf8(CharSequence data, int pos, int end, long h1, long h2, int bytes,
+                                   byte[] buf19, HashCode128 out) {
+    final byte[] encoded = buf19 == null ? new byte[19] : buf19;
+
+    int encOffset = 0;
 
     while (true) {
       // decode at least 16 bytes
@@ -658,4 +1271,172 @@ public final class MurmurHash3 {
     out.val1 = h1;
     out.val2 = h2;
   }
+
+  /**
+   * Returns the MurmurHash3_x86_128 hash of the UTF-8 bytes of the String, same as
+   * {@link #murmurhash3_x64_128(CharSequence, int, int, int, byte[], HashCode128)}, but optimized for
+   * strings which are mostly ASCII. Input is hashed 16 chars at a time as in {@link #murmurhash3_x64_128_ascii}
+   * until the first block containing a non-ASCII character, the rest is passed to the UTF-8 encoder. Unlike
+   * {@code murmurhash3_x64_128_ascii} it is safe to use on arbitrary input.
+   *
+   * @param data data to encode
+   * @param offset start offset
+   * @param len length
+   * @param seed seed
+   * @param buf19 temporary 19-byte buffer to use if non-ASCII characters are found.
+   *              New one will be allocated if {@code null} and required
+   * @param out output pair to write results to
+   */
+  public static void murmurhash3_x64_128_safe_ascii(CharSequence data, int offset, int len, int seed, byte[] buf19,
+                                                    HashCode128 out) {
+    // The original algorithm does have a 32 bit unsigned seed.
+    // We have to mask to match the behavior of the unsigned types and prevent sign extension.
+    long h1 = seed & 0x00000000FFFFFFFFL;
+    long h2 = seed & 0x00000000FFFFFFFFL;
+
+    int pos = offset;
+    int end = offset + len;
+
+    while (pos <= end - 16) {
+      // collect all chars in 'seen' so that a single check tells if the whole block is ASCII.
+      // k1 and k2 get garbage in this case, but they are thrown away
+      long c;
+      long seen;
+      long k1 = seen = data.charAt(pos);
+      k1 |= (c = data.charAt(pos + 1)) << 8;
+      seen |= c;
+      k1 |= (c = data.charAt(pos + 2)) << 16;
+      seen |= c;
+      k1 |= (c = data.charAt(pos + 3)) << 24;
+      seen |= c;
+      k1 |= (c = data.charAt(pos + 4)) << 32;
+      seen |= c;
+      k1 |= (c = data.charAt(pos + 5)) << 40;
+      seen |= c;
+      k1 |= (c = data.charAt(pos + 6)) << 48;
+      seen |= c;
+      k1 |= (c = data.charAt(pos + 7)) << 56;
+      seen |= c;
+
+      long k2 = c = data.charAt(pos + 8);
+      seen |= c;
+      k2 |= (c = data.charAt(pos + 9)) << 8;
+      seen |= c;
+      k2 |= (c = data.charAt(pos + 10)) << 16;
+      seen |= c;
+      k2 |= (c = data.charAt(pos + 11)) << 24;
+      seen |= c;
+      k2 |= (c = data.charAt(pos + 12)) << 32;
+      seen |= c;
+      k2 |= (c = data.charAt(pos + 13)) << 40;
+      seen |= c;
+      k2 |= (c = data.charAt(pos + 14)) << 48;
+      seen |= c;
+      k2 |= (c = data.charAt(pos + 15)) << 56;
+      seen |= c;
+
+      if ((seen & 0xff80) != 0) {
+        // non-ASCII block, every char so far was encoded as a single byte
+        x64_128_utf8(data, pos, end, h1, h2, pos - offset, buf19, out);
+        return;
+      }
+      pos += 16;
+
+      k1 *= c1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= c2;
+      h1 ^= k1;
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+      k2 *= c2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= c1;
+      h2 ^= k2;
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    } // inner
+
+    long seen = 0;
+    for (int i = pos; i < end; i++) {
+      seen |= data.charAt(i);
+    }
+    if ((seen & 0xff80) != 0) {
+      x64_128_utf8(data, pos, end, h1, h2, pos - offset, buf19, out);
+      return;
+    }
+
+    long k1 = 0;
+    long k2 = 0;
+    int tail = end;
+
+    switch ((end - pos) & 15) {
+      case 15:
+        k2 = (long) data.charAt(--tail) << 48;
+      case 14:
+        k2 |= (long) data.charAt(--tail) << 40;
+      case 13:
+        k2 |= (long) data.charAt(--tail) << 32;
+      case 12:
+        k2 |= (long) data.charAt(--tail) << 24;
+      case 11:
+        k2 |= (long) data.charAt(--tail) << 16;
+      case 10:
+        k2 |= (long) data.charAt(--tail) << 8;
+      case 9:
+        k2 |= data.charAt(--tail);
+        k2 *= c2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= c1;
+        h2 ^= k2;
+      case 8:
+        k1 = (long) data.charAt(--tail) << 56;
+      case 7:
+        k1 |= (long) data.charAt(--tail) << 48;
+      case 6:
+        k1 |= (long) data.charAt(--tail) << 40;
+      case 5:
+        k1 |= (long) data.charAt(--tail) << 32;
+      case 4:
+        k1 |= (long) data.charAt(--tail) << 24;
+      case 3:
+        k1 |= (long) data.charAt(--tail) << 16;
+      case 2:
+        k1 |= (long) data.charAt(--tail) << 8;
+      case 1:
+        k1 |= data.charAt(--tail);
+
+        k1 *= c1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= c2;
+        h1 ^= k1;
+    }
+
+    //----------
+    // finalization
+
+    h1 ^= len;
+    h2 ^= len;
+
+    h1 += h2;
+    h2 += h1;
+
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+
+    h1 += h2;
+    h2 += h1;
+
+    out.val1 = h1;
+    out.val2 = h2;
+  }
+
+  /**
+   * Returns the MurmurHash3_x64_128 hash of the UTF-8 encoded text read from {@code reader} till the end, same as
+   * hashing the whole text as a string but in constant memory. Reader is not closed.
+   */
+  public static void murmurhash3_x64_128(Reader reader, int seed, HashCode128 out) throws IOException {
+    new HashingSink128(seed).putReader(reader).finish(out);
+  }
 }
@@ -0,0 +1,186 @@
+package com.github.eprst.murmur3;
+
+import java.util.Arrays;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * 64-bit SimHash fingerprints: near-identical texts get fingerprints differing in few bits, see {@link #distance}
+ * and {@link Index}.
+ * <p>
+ * Tokens are hashed in place with {@code murmurhash3_x64_128}, every bit of the low half votes for the
+ * corresponding fingerprint bit with the token weight. Votes are accumulated in a reusable {@code int[64]},
+ * nothing is allocated per token. Not thread-safe, use an instance per thread.
+ * <pre>{@code
+ * long fingerprint = simHash.addTokens(page).finish();
+ * }</pre>
+ */
+public final class SimHash {
+  private final int seed;
+  private final int[] votes = new int[64];
+  private final HashCode128 hash = new HashCode128();
+  private final byte[] buf19 = new byte[19];
+
+  public SimHash(int seed) {
+    this.seed = seed;
+  }
+
+  /** Adds a token with the given 64-bit hash */
+  public SimHash addHash(long tokenHash, int weight) {
+    for (int i = 0; i < 64; i++) {
+      // +weight for set bits, -weight for clear ones
+      votes[i] += (((int) (tokenHash >>> i) & 1) * 2 - 1) * weight;
+    }
+    return this;
+  }
+
+  /** Adds {@code len} chars of {@code text} starting at {@code offset} as a token */
+  public SimHash addToken(CharSequence text, int offset, int len, int weight) {
+    MurmurHash3.murmurhash3_x64_128_safe_ascii(text, offset, len, seed, buf19, hash);
+    return addHash(hash.val1, weight);
+  }
+
+  /** Adds every whitespace-separated word of {@code text} as a token with weight 1 */
+  public SimHash addTokens(CharSequence text) {
+    int pos = 0;
+    int len = text.length();
+    while (true) {
+      while (pos < len && Character.isWhitespace(text.charAt(pos))) {
+        pos++;
+      }
+      if (pos == len) {
+        return this;
+      }
+      int start = pos;
+      while (pos < len && !Character.isWhitespace(text.charAt(pos))) {
+        pos++;
+      }
+      addToken(text, start, pos - start, 1);
+    }
+  }
+
+  /** Returns fingerprint of the tokens added since the last call and resets the votes */
+  public long finish() {
+    long fingerprint = 0;
+    for (int i = 0; i < 64; i++) {
+      if (votes[i] > 0) {
+        fingerprint |= 1L << i;
+      }
+    }
+    Arrays.fill(votes, 0);
+    return fingerprint;
+  }
+
+  /** Number of differing bits */
+  public static int distance(long a, long b) {
+    return Long.bitCount(a ^ b);
+  }
+
+  /**
+   * Immutable index for finding fingerprints within {@code maxDistance} bits of a query, using permuted tables
+   * (Manku, Jain, Das Sarma, "Detecting near-duplicates for web crawling").
+   * <p>
+   * Fingerprint bits are split into {@code maxDistance + 1} blocks, so two fingerprints within
+   * {@code maxDistance} bits agree on at least one whole block. For every block there's a sorted table of
+   * fingerprints rotated to have that block in the top bits, and a query only checks the fingerprints
+   * sharing the block with it in one of the tables. Memory use is {@code 8 * (maxDistance + 1)} bytes per
+   * fingerprint, query time grows with the number of fingerprints sharing a block.
+   */
+  public static final class Index {
+    private static final long[] EMPTY = new long[0];
+
+    private final int maxDistance;
+    private final int[] blockEnds;
+    /** Per-table rotated fingerprints with the sign bit flipped, sorted as signed longs */
+    private final long[][] tables;
+
+    public Index(long[] fingerprints, int maxDistance) {
+      if (maxDistance < 0 || maxDistance > 63) {
+        throw new IllegalArgumentException("Max distance must be between 0 and 63: " + maxDistance);
+      }
+      this.maxDistance = maxDistance;
+      int blocks = maxDistance + 1;
+      blockEnds = new int[blocks];
+      tables = new long[blocks][];
+      for (int t = 0; t < blocks; t++) {
+        blockEnds[t] = (t + 1) * 64 / blocks;
+        long[] table = new long[fingerprints.length];
+        for (int i = 0; i < fingerprints.length; i++) {
+          table[i] = permute(fingerprints[i], t);
+        }
+        Arrays.sort(table);
+        tables[t] = table;
+      }
+    }
+
+    public int maxDistance() {
+      return maxDistance;
+    }
+
+    /**
+     * Finds indexed fingerprints within {@code maxDistance} bits of {@code fingerprint}. Duplicate fingerprints
+     * are reported as many times as they were indexed.
+     *
+     * @param result array to put found fingerprints into, extra ones are counted but not written
+     * @return number of found fingerprints
+     */
+    public int query(long fingerprint, long[] result) {
+      int found = 0;
+      for (int t = 0; t < tables.length; t++) {
+        long[] table = tables[t];
+        int blockBits = blockEnds[t] - (t == 0 ? 0 : blockEnds[t - 1]);
+        long q = permute(fingerprint, t);
+        long lowMask = blockBits == 64 ? 0 : -1L >>> blockBits;
+        long from = q & ~lowMask;
+        long to = q | lowMask;
+        int i = Arrays.binarySearch(table, from);
+        if (i < 0) {
+          i = -i - 1;
+        } else {
+          while (i > 0 && table[i - 1] == from) {
+            i--;
+          }
+        }
+        for (; i < table.length && table[i] <= to; i++) {
+          long candidate = unpermute(table[i], t);
+          // candidates sharing an earlier block were already found in an earlier table
+          if (distance(candidate, fingerprint) <= maxDistance && firstEqualBlock(candidate, fingerprint) == t) {
+            if (found < result.length) {
+              result[found] = candidate;
+            }
+            found++;
+          }
+        }
+      }
+      return found;
+    }
+
+    /** Checks if there's an indexed fingerprint within {@code maxDistance} bits of {@code fingerprint} */
+    public boolean containsNear(long fingerprint) {
+      return query(fingerprint, EMPTY) > 0;
+    }
+
+    private int firstEqualBlock(long a, long b) {
+      long diff = a ^ b;
+      int start = 0;
+      for (int t = 0; t < blockEnds.length; t++) {
+        int end = blockEnds[t];
+        long mask = end - start == 64 ? -1L : ((1L << (end - start)) - 1) << start;
+        if ((diff & mask) == 0) {
+          return t;
+        }
+        start = end;
+      }
+      return -1;
+    }
+
+    /** Rotates block {@code t} to the top bits and flips the sign bit, so that signed order is unsigned order */
+    private long permute(long fingerprint, int t) {
+      return Long.rotateLeft(fingerprint, 64 - blockEnds[t]) ^ Long.MIN_VALUE;
+    }
+
+    private long unpermute(long value, int t) {
+      return Long.rotateRight(value ^ Long.MIN_VALUE, 64 - blockEnds[t]);
+    }
+  }
+}
@@ -0,0 +1,352 @@
+package com.github.eprst.murmur3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * Space-Saving top-k heavy hitters (Metwally, Agrawal, El Abbadi, "Efficient Computation of Frequent and Top-k
+ * Elements in Data Streams") keyed by {@code murmurhash3_x64_128} fingerprints.
+ * <p>
+ * At most k keys are monitored. A key which isn't monitored replaces the one with the smallest count, inheriting
+ * that count as its error, so reported counts overestimate true ones by at most {@link Entry#error}, which never
+ * exceeds {@code totalWeight() / k}. Every key with a true count above that is monitored.
+ * <p>
+ * Keys are identified by their 128-bit hash computed straight from the {@code CharSequence} or {@code byte[]}, and
+ * a copy of the key is only made when it becomes monitored. Entries live in primitive arrays kept in count order
+ * with groups of equal counts (the stream-summary structure), so adding 1 to a count is O(1), and a fingerprint
+ * index is an open addressing {@code int[]}.
+ * <p>
+ * Not thread-safe. For concurrent ingestion use an instance per thread and {@link #merge} them.
+ */
+public final class SpaceSaving {
+  /** Monitored key */
+  public static final class Entry {
+    /** {@code String} for {@code CharSequence} keys, {@code byte[]} for byte keys, {@code null} if added by hash */
+    public final Object key;
+    public final HashCode128 hash;
+    /** Upper bound of the true count */
+    public final long count;
+    /** Maximum overestimation, {@code count - error} is the lower bound of the true count */
+    public final long error;
+
+    Entry(Object key, HashCode128 hash, long count, long error) {
+      this.key = key;
+      this.hash = hash;
+      this.count = count;
+      this.error = error;
+    }
+
+    @Override
+    public String toString() {
+      Object k = key instanceof byte[] ? Arrays.toString((byte[]) key) : key;
+      return k + " (" + hash + "): " + count + ", error " + error;
+    }
+  }
+
+  private final int k;
+  private final int seed;
+  private final long[] fp1;
+  private final long[] fp2;
+  private final long[] counts;
+  private final long[] errors;
+  private final Object[] keys;
+  /** Entries by position, in descending count order */
+  private final int[] order;
+  private final int[] positions;
+  /** Group of each entry, a group being a run of positions with equal counts */
+  private final int[] groups;
+  private final int[] groupFirst;
+  private final int[] groupSize;
+  private final int[] freeGroups;
+  private int freeGroupCount;
+  /** Linear probing table of entry + 1, 0 for free slots */
+  private final int[] index;
+  private final int indexMask;
+  private int size;
+  private long totalWeight;
+
+  private final HashCode128 hash = new HashCode128();
+  private final byte[] buf19 = new byte[19];
+
+  /**
+   * @param k number of monitored keys
+   * @param seed hash seed, only instances with the same seed can be merged
+   */
+  public SpaceSaving(int k, int seed) {
+    if (k <= 0 || k > 1 << 28) {
+      throw new IllegalArgumentException("k must be between 1 and 2^28: " + k);
+    }
+    this.k = k;
+    this.seed = seed;
+    fp1 = new long[k];
+    fp2 = new long[k];
+    counts = new long[k];
+    errors = new long[k];
+    keys = new Object[k];
+    order = new int[k];
+    positions = new int[k];
+    groups = new int[k];
+    groupFirst = new int[k];
+    groupSize = new int[k];
+    freeGroups = new int[k];
+    index = new int[Integer.highestOneBit(k) * 4];
+    indexMask = index.length - 1;
+    clear();
+  }
+
+  public int k() {
+    return k;
+  }
+
+  public int seed() {
+    return seed;
+  }
+
+  /** Number of monitored keys */
+  public int size() {
+    return size;
+  }
+
+  /** Sum of all added weights */
+  public long totalWeight() {
+    return totalWeight;
+  }
+
+  public void add(CharSequence key) {
+    add(key, 1);
+  }
+
+  public void add(CharSequence key, long weight) {
+    MurmurHash3.murmurhash3_x64_128_safe_ascii(key, 0, key.length(), seed, buf19, hash);
+    int e = offer(hash.val1, hash.val2, weight);
+    if (e >= 0) {
+      keys[e] = key.toString();
+    }
+  }
+
+  public void add(byte[] key, int offset, int len, long weight) {
+    MurmurHash3.murmurhash3_x64_128(key, offset, len, seed, hash);
+    int e = offer(hash.val1, hash.val2, weight);
+    if (e >= 0) {
+      keys[e] = Arrays.copyOfRange(key, offset, offset + len);
+    }
+  }
+
+  public void add(byte[] key) {
+    add(key, 0, key.length, 1);
+  }
+
+  /** Adds a key by its hash computed with {@link #seed()}, without keeping the key itself */
+  public void add(HashCode128 keyHash, long weight) {
+    offer(keyHash.val1, keyHash.val2, weight);
+  }
+
+  /** Monitored keys in descending count order */
+  public List<Entry> topK() {
+    List<Entry> result = new ArrayList<>(size);
+    for (int p = 0; p < size; p++) {
+      int e = order[p];
+      HashCode128 h = new HashCode128();
+      h.val1 = fp1[e];
+      h.val2 = fp2[e];
+      result.add(new Entry(keys[e], h, counts[e], errors[e]));
+    }
+    return result;
+  }
+
+  /**
+   * Merges {@code other} into this summary (Agarwal et al., "Mergeable Summaries"). Keys missing from a full summary
+   * are counted as having its minimum count, and the k largest combined counts are kept.
+   */
+  public void merge(SpaceSaving other) {
+    if (other.seed != seed) {
+      throw new IllegalArgumentException("Seeds differ: " + seed + " != " + other.seed);
+    }
+    long minThis = size == k ? counts[order[k - 1]] : 0;
+    long minOther = other.size == other.k ? other.counts[other.order[other.k - 1]] : 0;
+    int n = 0;
+    long[] c1 = new long[size + other.size];
+    long[] c2 = new long[c1.length];
+    long[] cCounts = new long[c1.length];
+    long[] cErrors = new long[c1.length];
+    Object[] cKeys = new Object[c1.length];
+    for (int e = 0; e < size; e++) {
+      int o = other.find(fp1[e], fp2[e]);
+      c1[n] = fp1[e];
+      c2[n] = fp2[e];
+      cCounts[n] = counts[e] + (o >= 0 ? other.counts[o] : minOther);
+      cErrors[n] = errors[e] + (o >= 0 ? other.errors[o] : minOther);
+      cKeys[n] = keys[e] != null || o < 0 ? keys[e] : other.keys[o];
+      n++;
+    }
+    for (int o = 0; o < other.size; o++) {
+      if (find(other.fp1[o], other.fp2[o]) < 0) {
+        c1[n] = other.fp1[o];
+        c2[n] = other.fp2[o];
+        cCounts[n] = other.counts[o] + minThis;
+        cErrors[n] = other.errors[o] + minThis;
+        cKeys[n] = other.keys[o];
+        n++;
+      }
+    }
+    Integer[] byCount = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      byCount[i] = i;
+    }
+    Arrays.sort(byCount, (a, b) -> Long.compare(cCounts[b], cCounts[a]));
+
+    long total = totalWeight + other.totalWeight;
+    clear();
+    totalWeight = total;
+    for (int i = 0; i < Math.min(n, k); i++) {
+      int c = byCount[i];
+      fp1[i] = c1[c];
+      fp2[i] = c2[c];
+      counts[i] = cCounts[c];
+      errors[i] = cErrors[c];
+      keys[i] = cKeys[c];
+      order[i] = i;
+      positions[i] = i;
+      if (i > 0 && counts[i - 1] == counts[i]) {
+        groups[i] = groups[i - 1];
+        groupSize[groups[i]]++;
+      } else {
+        int g = freeGroups[--freeGroupCount];
+        groups[i] = g;
+        groupFirst[g] = i;
+        groupSize[g] = 1;
+      }
+      indexInsert(i);
+      size++;
+    }
+  }
+
+  /** Removes all keys */
+  public void clear() {
+    size = 0;
+    totalWeight = 0;
+    Arrays.fill(keys, null);
+    Arrays.fill(index, 0);
+    for (int g = 0; g < k; g++) {
+      freeGroups[g] = g;
+    }
+    freeGroupCount = k;
+  }
+
+  /** @return entry which needs its key set, or -1 if the key was already monitored */
+  private int offer(long h1, long h2, long weight) {
+    if (weight <= 0) {
+      throw new IllegalArgumentException("Weight must be positive: " + weight);
+    }
+    totalWeight += weight;
+    int e = find(h1, h2);
+    if (e >= 0) {
+      increment(e, weight);
+      return -1;
+    }
+    if (size < k) {
+      e = size++;
+      order[e] = e;
+      positions[e] = e;
+      counts[e] = 0;
+      errors[e] = 0;
+      groups[e] = -1;
+    } else {
+      // replace the key with the smallest count
+      e = order[k - 1];
+      indexRemove(e);
+      errors[e] = counts[e];
+      keys[e] = null;
+    }
+    fp1[e] = h1;
+    fp2[e] = h2;
+    indexInsert(e);
+    increment(e, weight);
+    return e;
+  }
+
+  /** Adds {@code weight} to the count of entry {@code e} and moves it to keep positions in count order */
+  private void increment(int e, long weight) {
+    long count = counts[e] + weight;
+    counts[e] = count;
+    int p = positions[e];
+    int g = groups[e];
+    if (g >= 0) {
+      // leave the group through its first position
+      int first = groupFirst[g];
+      swap(p, first);
+      p = first;
+      if (--groupSize[g] == 0) {
+        freeGroups[freeGroupCount++] = g;
+      } else {
+        groupFirst[g] = first + 1;
+      }
+    }
+    // O(1) for unit weights: the previous group has a count larger by 1 at least
+    while (p > 0 && counts[order[p - 1]] < count) {
+      int h = groups[order[p - 1]];
+      int first = groupFirst[h];
+      swap(p, first);
+      groupFirst[h] = first + 1;
+      p = first;
+    }
+    if (p > 0 && counts[order[p - 1]] == count) {
+      int h = groups[order[p - 1]];
+      groupSize[h]++;
+      groups[e] = h;
+    } else {
+      int h = freeGroups[--freeGroupCount];
+      groupFirst[h] = p;
+      groupSize[h] = 1;
+      groups[e] = h;
+    }
+  }
+
+  private void swap(int p1, int p2) {
+    int e1 = order[p1];
+    int e2 = order[p2];
+    order[p1] = e2;
+    order[p2] = e1;
+    positions[e2] = p1;
+    positions[e1] = p2;
+  }
+
+  private int find(long h1, long h2) {
+    for (int i = (int) h1 & indexMask; ; i = (i + 1) & indexMask) {
+      int e = index[i] - 1;
+      if (e < 0) {
+        return -1;
+      }
+      if (fp1[e] == h1 && fp2[e] == h2) {
+        return e;
+      }
+    }
+  }
+
+  private void indexInsert(int e) {
+    int i = (int) fp1[e] & indexMask;
+    while (index[i] != 0) {
+      i = (i + 1) & indexMask;
+    }
+    index[i] = e + 1;
+  }
+
+  /** Removes entry from the index with backward shift deletion */
+  private void indexRemove(int e) {
+    int i = (int) fp1[e] & indexMask;
+    while (index[i] != e + 1) {
+      i = (i + 1) & indexMask;
+    }
+    for (int j = (i + 1) & indexMask; index[j] != 0; j = (j + 1) & indexMask) {
+      int home = (int) fp1[index[j] - 1] & indexMask;
+      if (((j - home) & indexMask) >= ((j - i) & indexMask)) {
+        index[i] = index[j];
+        i = j;
+      }
+    }
+    index[i] = 0;
+  }
+}
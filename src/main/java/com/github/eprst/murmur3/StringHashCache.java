@@ -0,0 +1,131 @@
+package com.github.eprst.murmur3;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * Bounded cache of {@code murmurhash3_x64_128} hashes of UTF-8 encoded strings, keyed on string identity.
+ * Meant for code hashing the same {@code String} instances over and over, e.g. tenant ids or metric names
+ * passed through several layers: a hit costs an identity hash and one bucket probe instead of encoding
+ * the whole string. Equal but distinct instances are cached separately.
+ * <p>
+ * The table consists of 4-entry buckets selected by {@link System#identityHashCode}. Strings are referenced
+ * weakly, so the cache never keeps them alive. When a bucket is full, the victim is chosen with
+ * the clock (second chance) algorithm: entries hit since the hand last passed them are skipped once.
+ * <p>
+ * Thread-safe, lookups are lock-free. Concurrent inserts into the same bucket may overwrite each other, which only
+ * costs a future miss. Each instance serves a single seed.
+ */
+public final class StringHashCache {
+  private static final int WAYS = 4;
+
+  private static final class Entry extends WeakReference<String> {
+    final long val1;
+    final long val2;
+    /** Clock bit, set on every hit and cleared by the hand. Races are harmless */
+    boolean referenced;
+
+    Entry(String s, long val1, long val2) {
+      super(s);
+      this.val1 = val1;
+      this.val2 = val2;
+    }
+  }
+
+  private final int seed;
+  private final AtomicReferenceArray<Entry> entries;
+  /** Clock hand per bucket, racy updates are fine */
+  private final byte[] hands;
+  private final int bucketMask;
+
+  /**
+   * @param seed hash seed
+   * @param capacity maximum number of cached hashes, rounded up to a power of two, 4 at least
+   */
+  public StringHashCache(int seed, int capacity) {
+    if (capacity <= 0 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+    }
+    int buckets = Math.max(1, Integer.highestOneBit(capacity - 1) * 2 / WAYS);
+    this.seed = seed;
+    this.entries = new AtomicReferenceArray<>(buckets * WAYS);
+    this.hands = new byte[buckets];
+    this.bucketMask = buckets - 1;
+  }
+
+  public int seed() {
+    return seed;
+  }
+
+  /**
+   * Same as {@code murmurhash3_x64_128(s, 0, s.length(), seed, null, out)}, taken from the cache if possible.
+   * Computed hash is added to the cache.
+   */
+  public HashCode128 hash(String s, HashCode128 out) {
+    if (!get(s, out)) {
+      MurmurHash3.murmurhash3_x64_128_safe_ascii(s, 0, s.length(), seed, null, out);
+      put(s, out);
+    }
+    return out;
+  }
+
+  public HashCode128 hash(String s) {
+    return hash(s, new HashCode128());
+  }
+
+  /**
+   * Looks up cached hash of {@code s}
+   *
+   * @return {@code true} if found, in which case it is written to {@code out}
+   */
+  public boolean get(String s, HashCode128 out) {
+    int base = bucket(s) * WAYS;
+    for (int i = 0; i < WAYS; i++) {
+      Entry e = entries.get(base + i);
+      if (e != null && e.get() == s) {
+        if (!e.referenced) {
+          e.referenced = true;
+        }
+        out.val1 = e.val1;
+        out.val2 = e.val2;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Caches {@code hash} as the hash of {@code s}, possibly evicting another entry */
+  public void put(String s, HashCode128 hash) {
+    int bucket = bucket(s);
+    int base = bucket * WAYS;
+    int hand = hands[bucket];
+    int victim = -1;
+    // two rounds at most: the first one may only clear reference bits
+    for (int i = 0; i < 2 * WAYS && victim < 0; i++, hand = (hand + 1) & (WAYS - 1)) {
+      Entry e = entries.get(base + hand);
+      if (e == null || e.get() == null || e.get() == s) {
+        victim = hand;
+      } else if (e.referenced) {
+        e.referenced = false;
+      } else {
+        victim = hand;
+      }
+    }
+    hands[bucket] = (byte) ((victim + 1) & (WAYS - 1));
+    entries.set(base + victim, new Entry(s, hash.val1, hash.val2));
+  }
+
+  /** Removes all entries */
+  public void clear() {
+    for (int i = 0; i < entries.length(); i++) {
+      entries.set(i, null);
+    }
+  }
+
+  private int bucket(String s) {
+    int h = System.identityHashCode(s);
+    return (h ^ (h >>> 16)) & bucketMask;
+  }
+}
@@ -0,0 +1,180 @@
+package com.github.eprst.murmur3;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * Concurrent string interner for deduplicating large numbers of repeated strings, e.g. labels of ingested data.
+ * <p>
+ * Strings are looked up by their {@code murmurhash3_x64_128} fingerprint computed directly from the
+ * {@code CharSequence}, so looking up an existing string doesn't allocate. A fingerprint match is confirmed by
+ * comparing the contents. The table is split into independently locked stripes, each an open addressing table
+ * of fingerprints in a {@code long[]} and strings in an {@code Object[]}, which is much more compact than
+ * a {@code HashMap}.
+ * <p>
+ * In weak mode strings are referenced through {@link WeakReference}s and can be garbage collected once not used
+ * elsewhere, cleared entries are reused and dropped when a stripe grows.
+ */
+public final class StringInterner {
+  private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+  private final int seed = ThreadLocalRandom.current().nextInt();
+  private final boolean weak;
+  private final Stripe[] stripes;
+  private final ThreadLocal<HashCode128> fingerprints = ThreadLocal.withInitial(HashCode128::new);
+  private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[19]);
+
+  /** Creates strong interner with 64 stripes */
+  public StringInterner() {
+    this(64, false);
+  }
+
+  /**
+   * @param concurrencyLevel number of stripes, rounded up to a power of two
+   * @param weak reference interned strings weakly
+   */
+  public StringInterner(int concurrencyLevel, boolean weak) {
+    if (concurrencyLevel <= 0 || concurrencyLevel > 1 << 16) {
+      throw new IllegalArgumentException("Concurrency level must be between 1 and 2^16: " + concurrencyLevel);
+    }
+    this.weak = weak;
+    this.stripes = new Stripe[concurrencyLevel == 1 ? 1 : Integer.highestOneBit(concurrencyLevel - 1) << 1];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  /** Returns canonical string equal to {@code s} */
+  public String intern(CharSequence s) {
+    return intern(s, 0, s.length());
+  }
+
+  /** Returns canonical string equal to {@code s.subSequence(offset, offset + len)} */
+  public String intern(CharSequence s, int offset, int len) {
+    HashCode128 fp = fingerprints.get();
+    MurmurHash3.murmurhash3_x64_128_safe_ascii(s, offset, len, seed, buffers.get(), fp);
+    // stripe from the high bits of val2, slot from val1
+    Stripe stripe = stripes[(int) (fp.val2 >>> 32) & (stripes.length - 1)];
+    synchronized (stripe) {
+      return stripe.intern(fp.val1, fp.val2, s, offset, len);
+    }
+  }
+
+  /** Number of interned strings, including weakly referenced ones which may have been collected */
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size;
+      }
+    }
+    return size;
+  }
+
+  private final class Stripe {
+    /** Fingerprint pairs */
+    long[] fingerprints = new long[2 * INITIAL_STRIPE_CAPACITY];
+    /** {@code String}, {@code WeakReference<String>} or {@code null} for free slots */
+    Object[] values = new Object[INITIAL_STRIPE_CAPACITY];
+    /** Occupied slots, including cleared weak references */
+    int size;
+
+    String intern(long fp1, long fp2, CharSequence s, int offset, int len) {
+      int mask = values.length - 1;
+      int free = -1;
+      for (int i = (int) fp1 & mask; ; i = (i + 1) & mask) {
+        Object value = values[i];
+        if (value == null) {
+          break;
+        }
+        String candidate = weak ? ((StringWeakReference) value).get() : (String) value;
+        if (candidate == null) {
+          if (free < 0) {
+            free = i;
+          }
+        } else if (fingerprints[2 * i] == fp1 && fingerprints[2 * i + 1] == fp2 &&
+                   contentEquals(candidate, s, offset, len)) {
+          return candidate;
+        }
+      }
+
+      String result = (offset == 0 && len == s.length() && s instanceof String)
+                      ? (String) s
+                      : s.subSequence(offset, offset + len).toString();
+      if (free >= 0) {
+        // reuse cleared slot, size doesn't change
+        set(free, fp1, fp2, result);
+      } else {
+        if (3 * (size + 1) > 2 * values.length) {
+          rehash();
+        }
+        insert(fp1, fp2, weak ? new StringWeakReference(result) : result);
+        size++;
+      }
+      return result;
+    }
+
+    private void set(int i, long fp1, long fp2, String value) {
+      fingerprints[2 * i] = fp1;
+      fingerprints[2 * i + 1] = fp2;
+      values[i] = weak ? new StringWeakReference(value) : value;
+    }
+
+    private void insert(long fp1, long fp2, Object value) {
+      int mask = values.length - 1;
+      int i = (int) fp1 & mask;
+      while (values[i] != null) {
+        i = (i + 1) & mask;
+      }
+      fingerprints[2 * i] = fp1;
+      fingerprints[2 * i + 1] = fp2;
+      values[i] = value;
+    }
+
+    /** Doubles the table, unless dropping cleared weak references frees enough space */
+    private void rehash() {
+      long[] oldFingerprints = fingerprints;
+      Object[] oldValues = values;
+      int live = 0;
+      for (Object value : oldValues) {
+        if (value != null && (!weak || ((StringWeakReference) value).get() != null)) {
+          live++;
+        }
+      }
+      int capacity = oldValues.length;
+      if (3 * (live + 1) > capacity) {
+        capacity *= 2;
+      }
+      fingerprints = new long[2 * capacity];
+      values = new Object[capacity];
+      size = 0;
+      for (int i = 0; i < oldValues.length; i++) {
+        Object value = oldValues[i];
+        if (value != null && (!weak || ((StringWeakReference) value).get() != null)) {
+          insert(oldFingerprints[2 * i], oldFingerprints[2 * i + 1], value);
+          size++;
+        }
+      }
+    }
+  }
+
+  private static final class StringWeakReference extends WeakReference<String> {
+    StringWeakReference(String s) {
+      super(s);
+    }
+  }
+
+  private static boolean contentEquals(String candidate, CharSequence s, int offset, int len) {
+    if (candidate.length() != len) {
+      return false;
+    }
+    for (int i = 0; i < len; i++) {
+      if (candidate.charAt(i) != s.charAt(offset + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,166 @@
+package com.github.eprst.murmur3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * Tree hashing mode for hashing huge inputs on multiple cores. Results are NOT compatible with the plain
+ * {@code murmurhash3_x64_128} of the same data.
+ * <p>
+ * Version 1 of the tree hash is defined as follows:
+ * <ol>
+ *   <li>input is split into leaves of {@code leafSize} bytes, the last leaf can be shorter. Empty input
+ *   is a single empty leaf</li>
+ *   <li>each leaf is hashed with {@code murmurhash3_x64_128(leaf, seed)}</li>
+ *   <li>hashes are combined pairwise, left to right, as {@code HashingSink128(seed)} hash of the left hash
+ *   followed by the right one (see {@link HashingSink128#putMurmurHash3}). An odd node out at the end of
+ *   a level is promoted to the next level as is. This is repeated until a single root hash is left</li>
+ *   <li>result is {@code HashingSink128(seed)} hash of version byte, {@code leafSize} int, total input length
+ *   long and the root hash</li>
+ * </ol>
+ * Leaves are hashed in parallel in the provided {@link ForkJoinPool}, the result doesn't depend on the number
+ * of threads. Instances are thread-safe.
+ */
+public final class TreeHasher {
+  public static final byte VERSION = 1;
+  public static final int DEFAULT_LEAF_SIZE = 1 << 20;
+
+  /** Files are mapped in segments of up to 1 GiB */
+  private static final int MAX_SEGMENT_SIZE = 1 << 30;
+  private static final byte[] EMPTY = new byte[0];
+
+  private final int seed;
+  private final int leafSize;
+  private final ForkJoinPool pool;
+
+  /** Creates tree hasher with 1 MiB leaves, running in the common pool */
+  public TreeHasher(int seed) {
+    this(seed, DEFAULT_LEAF_SIZE, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param seed seed
+   * @param leafSize leaf size, must be a power of two between 16 bytes and 1 GiB. Different leaf sizes
+   *                 produce different hashes
+   * @param pool pool to hash leaves in
+   */
+  public TreeHasher(int seed, int leafSize, ForkJoinPool pool) {
+    if (leafSize < 16 || leafSize > MAX_SEGMENT_SIZE || Integer.bitCount(leafSize) != 1) {
+      throw new IllegalArgumentException("Leaf size must be a power of two between 16 and 2^30: " + leafSize);
+    }
+    this.seed = seed;
+    this.leafSize = leafSize;
+    this.pool = pool;
+  }
+
+  public HashCode128 hash(byte[] data, int offset, int len) {
+    return hash(len, "TreeHasher.hash(byte[])", (leafOffset, leafLen, out) ->
+        MurmurHash3.murmurhash3_x64_128(data, offset + (int) leafOffset, leafLen, seed, out));
+  }
+
+  public HashCode128 hash(byte[] data) {
+    return hash(data, 0, data.length);
+  }
+
+  /** Hashes bytes between buffer position and limit, buffer is not modified */
+  public HashCode128 hash(ByteBuffer data) {
+    int position = data.position();
+    return hash(data.remaining(), "TreeHasher.hash(ByteBuffer)", (leafOffset, leafLen, out) ->
+        MurmurHash3.x64_128_buffer(data, position + (int) leafOffset, leafLen, seed, out));
+  }
+
+  /** Hashes memory-mapped file contents */
+  public HashCode128 hash(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size == 0) {
+        return hash(0, "TreeHasher.hash(Path)", (leafOffset, leafLen, out) ->
+            MurmurHash3.murmurhash3_x64_128(EMPTY, 0, 0, seed, out));
+      }
+      ByteBuffer[] segments = new ByteBuffer[(int) ((size + MAX_SEGMENT_SIZE - 1) / MAX_SEGMENT_SIZE)];
+      for (int i = 0; i < segments.length; i++) {
+        long position = (long) i * MAX_SEGMENT_SIZE;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_SEGMENT_SIZE, size - position));
+      }
+      // leaf size divides segment size, so leaves never cross segment boundaries
+      return hash(size, "TreeHasher.hash(Path)", (leafOffset, leafLen, out) ->
+          MurmurHash3.x64_128_buffer(segments[(int) (leafOffset / MAX_SEGMENT_SIZE)],
+                                     (int) (leafOffset % MAX_SEGMENT_SIZE), leafLen, seed, out));
+    }
+  }
+
+  @FunctionalInterface
+  private interface LeafHasher {
+    void hash(long leafOffset, int leafLen, HashCode128 out);
+  }
+
+  /** Leaves are hashed without JFR events, a single event is emitted for the whole input */
+  private HashCode128 hash(long length, String entryPoint, LeafHasher leafHasher) {
+    Object event = length >= HashingEvents.THRESHOLD ? HashingEvents.begin() : null;
+    long numLeaves = Math.max(1, (length + leafSize - 1) / leafSize);
+    if (numLeaves > Integer.MAX_VALUE / 2) {
+      throw new IllegalArgumentException("Too many leaves: " + numLeaves + ", use larger leaf size");
+    }
+    long[] hashes = new long[2 * (int) numLeaves];
+    pool.invoke(new LeavesTask(leafHasher, length, hashes, 0, (int) numLeaves));
+
+    // combine levels in place, n nodes -> (n + 1) / 2 nodes
+    HashingSink128 sink = new HashingSink128(seed);
+    HashCode128 node = new HashCode128();
+    for (int n = (int) numLeaves; n > 1; n = (n + 1) / 2) {
+      for (int i = 0; i < n / 2; i++) {
+        sink.putLong(hashes[4 * i]).putLong(hashes[4 * i + 1]).putLong(hashes[4 * i + 2]).putLong(hashes[4 * i + 3]);
+        sink.finish(node);
+        hashes[2 * i] = node.val1;
+        hashes[2 * i + 1] = node.val2;
+      }
+      if ((n & 1) != 0) {
+        hashes[n - 1] = hashes[2 * (n - 1)];
+        hashes[n] = hashes[2 * (n - 1) + 1];
+      }
+    }
+
+    HashCode128 result =
+        sink.putByte(VERSION).putInt(leafSize).putLong(length).putLong(hashes[0]).putLong(hashes[1]).finish();
+    HashingEvents.end(event, entryPoint, length);
+    return result;
+  }
+
+  private final class LeavesTask extends RecursiveAction {
+    private final LeafHasher leafHasher;
+    private final long length;
+    private final long[] hashes;
+    private final int from;
+    private final int to;
+
+    LeavesTask(LeafHasher leafHasher, long length, long[] hashes, int from, int to) {
+      this.leafHasher = leafHasher;
+      this.length = length;
+      this.hashes = hashes;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new LeavesTask(leafHasher, length, hashes, from, mid),
+                  new LeavesTask(leafHasher, length, hashes, mid, to));
+      } else {
+        HashCode128 out = new HashCode128();
+        long leafOffset = (long) from * leafSize;
+        leafHasher.hash(leafOffset, (int) Math.min(leafSize, length - leafOffset), out);
+        hashes[2 * from] = out.val1;
+        hashes[2 * from + 1] = out.val2;
+      }
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.github.eprst.murmur3;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+/**
+ * Order-independent 128-bit hash of a multiset, for fingerprinting sets and maps without sorting them.
+ * <p>
+ * Each element is hashed with {@code murmurhash3_x64_128}, element hashes are added up as 128-bit integers
+ * ({@code val1} being the low half) and counted. The final hash is {@link HashingSink128} hash of the sum and
+ * the count. Addition is commutative and associative, so partial results can be computed in parallel and
+ * {@link #combine combined} in any order. Unlike XOR, duplicates don't cancel out.
+ * <pre>{@code
+ * HashCode128 h = set.parallelStream().collect(UnorderedHasher.collector(UnorderedHasher.utf8(seed), seed));
+ * }</pre>
+ * Instances are not thread-safe.
+ */
+public final class UnorderedHasher {
+  /** Computes 128-bit hash of an element */
+  @FunctionalInterface
+  public interface ElementHasher<T> {
+    void hash(T element, HashCode128 out);
+  }
+
+  private final int seed;
+  private final HashCode128 elementHash = new HashCode128();
+  private long sumLow;
+  private long sumHigh;
+  private long count;
+
+  public UnorderedHasher(int seed) {
+    this.seed = seed;
+  }
+
+  public UnorderedHasher add(long val1, long val2) {
+    long low = sumLow + val1;
+    // unsigned overflow of the low half carries into the high one
+    sumHigh += val2 + (Long.compareUnsigned(low, sumLow) < 0 ? 1 : 0);
+    sumLow = low;
+    count++;
+    return this;
+  }
+
+  public UnorderedHasher add(HashCode128 hash) {
+    return add(hash.val1, hash.val2);
+  }
+
+  /** Hashes {@code element} with {@code hasher} and adds it */
+  public <T> UnorderedHasher add(T element, ElementHasher<? super T> hasher) {
+    hasher.hash(element, elementHash);
+    return add(elementHash.val1, elementHash.val2);
+  }
+
+  /** Adds all elements added to {@code other} to this instance */
+  public UnorderedHasher combine(UnorderedHasher other) {
+    long low = sumLow + other.sumLow;
+    sumHigh += other.sumHigh + (Long.compareUnsigned(low, sumLow) < 0 ? 1 : 0);
+    sumLow = low;
+    count += other.count;
+    return this;
+  }
+
+  public long count() {
+    return count;
+  }
+
+  /** Computes the resulting hash. Instance is not modified and more elements can be added */
+  public HashCode128 finish(HashCode128 result) {
+    new HashingSink128(seed).putLong(sumLow).putLong(sumHigh).putLong(count).finish(result);
+    return result;
+  }
+
+  public HashCode128 finish() {
+    return finish(new HashCode128());
+  }
+
+  /**
+   * Collector computing order-independent hash of the stream elements, works with parallel streams.
+   *
+   * @param hasher element hasher
+   * @param seed seed used for finalization
+   */
+  public static <T> Collector<T, UnorderedHasher, HashCode128> collector(ElementHasher<? super T> hasher, int seed) {
+    return new Collector<T, UnorderedHasher, HashCode128>() {
+      @Override
+      public Supplier<UnorderedHasher> supplier() {
+        return () -> new UnorderedHasher(seed);
+      }
+
+      @Override
+      public BiConsumer<UnorderedHasher, T> accumulator() {
+        return (acc, element) -> acc.add(element, hasher);
+      }
+
+      @Override
+      public BinaryOperator<UnorderedHasher> combiner() {
+        return UnorderedHasher::combine;
+      }
+
+      @Override
+      public Function<UnorderedHasher, HashCode128> finisher() {
+        return UnorderedHasher::finish;
+      }
+
+      @Override
+      public Set<Characteristics> characteristics() {
+        return EnumSet.of(Characteristics.UNORDERED);
+      }
+    };
+  }
+
+  /** Hashes elements as UTF-8 strings */
+  public static ElementHasher<CharSequence> utf8(int seed) {
+    return (s, out) -> MurmurHash3.murmurhash3_x64_128_safe_ascii(s, 0, s.length(), seed, null, out);
+  }
+
+  /** Hashes byte array elements */
+  public static ElementHasher<byte[]> bytes(int seed) {
+    return (b, out) -> MurmurHash3.murmurhash3_x64_128(b, 0, b.length, seed, out);
+  }
+
+  /** Hashes long elements as their 8 little-endian bytes */
+  public static ElementHasher<Long> longs(int seed) {
+    return (l, out) -> MurmurHash3.murmurhash3_x64_128(l, seed, out);
+  }
+}
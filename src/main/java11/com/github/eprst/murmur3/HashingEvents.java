@@ -0,0 +1,59 @@
+package com.github.eprst.murmur3;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events for large hashing operations, Java 11+ version.
+ * <p>
+ * Usage pattern: {@code Object event = begin(); ...; end(event, entryPoint, bytes)}. Event is committed
+ * only if {@code bytes} is at least {@code -Dmurmur3.jfr.threshold} (1 MiB by default).
+ */
+final class HashingEvents {
+  static final long THRESHOLD = Long.getLong("murmur3.jfr.threshold", 1L << 20);
+
+  // instance used only to check if the event type is enabled in any running recording
+  private static final HashingEvent probe = new HashingEvent();
+
+  private HashingEvents() {}
+
+  /** Starts timing an operation, returns {@code null} if events are disabled */
+  static Object begin() {
+    if (!probe.isEnabled()) {
+      return null;
+    }
+    HashingEvent event = new HashingEvent();
+    event.begin();
+    return event;
+  }
+
+  /** Finishes timing operation started by {@link #begin()} */
+  static void end(Object event, String entryPoint, long bytes) {
+    if (event != null && bytes >= THRESHOLD) {
+      HashingEvent e = (HashingEvent) event;
+      e.end();
+      if (e.shouldCommit()) {
+        e.entryPoint = entryPoint;
+        e.bytes = bytes;
+        e.commit();
+      }
+    }
+  }
+
+  @Name("com.github.eprst.murmur3.Hashing")
+  @Label("Murmur3 Hashing")
+  @Category("Murmur3")
+  @Description("Hashing operation on more than murmur3.jfr.threshold bytes")
+  static final class HashingEvent extends Event {
+    @Label("Entry Point")
+    String entryPoint;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+  }
+}
@@ -0,0 +1,78 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+public class TestAsyncFileHasher extends TestCase {
+  private final Random r = new Random();
+
+  public void testFiles() throws Exception {
+    AsyncFileHasher small = new AsyncFileHasher(42, 64, 3);
+    AsyncFileHasher large = new AsyncFileHasher(42);
+    Path file = Files.createTempFile("async", ".bin");
+    try {
+      for (int len : new int[]{0, 1, 15, 16, 63, 64, 65, 64 * 3, 64 * 3 + 1, 1000, 100000, 3 * (1 << 20) + 5}) {
+        byte[] b = new byte[len];
+        r.nextBytes(b);
+        Files.write(file, b);
+        HashCode128 expected = new HashCode128();
+        MurmurHash3.murmurhash3_x64_128(b, 0, len, 42, expected);
+
+        assertEquals(expected, small.hash(file).get());
+        assertEquals(expected, large.hash(file).get());
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, StandardOpenOption.READ)) {
+          assertEquals(expected, small.hash(channel).get());
+          assertTrue(channel.isOpen());
+        }
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  public void testAfterEmptyFile() throws Exception {
+    AsyncFileHasher hasher = new AsyncFileHasher(7, 64, 2);
+    Path empty = Files.createTempFile("async", ".bin");
+    Path file = Files.createTempFile("async", ".bin");
+    try {
+      byte[] b = new byte[64 * 10 + 3];
+      r.nextBytes(b);
+      Files.write(file, b);
+      HashCode128 expected = new HashCode128();
+      MurmurHash3.murmurhash3_x64_128(b, 0, b.length, 7, expected);
+      HashCode128 expectedEmpty = new HashCode128();
+      MurmurHash3.murmurhash3_x64_128(new byte[0], 0, 0, 7, expectedEmpty);
+
+      assertEquals(expectedEmpty, hasher.hash(empty).get());
+      // drain requests of the next file must not be mistaken for pending ones
+      assertEquals(0, hasher.wip.get());
+      assertEquals(expected, hasher.hash(file).get());
+      assertEquals(0, hasher.wip.get());
+      assertEquals(expectedEmpty, hasher.hash(empty).get());
+      assertEquals(expectedEmpty, hasher.hash(empty).get());
+      assertEquals(expected, hasher.hash(file).get());
+    } finally {
+      Files.delete(empty);
+      Files.delete(file);
+    }
+  }
+
+  public void testMissingFile() throws Exception {
+    AsyncFileHasher hasher = new AsyncFileHasher(0, 16, 2);
+    try {
+      hasher.hash(Files.createTempDirectory("async").resolve("missing")).get();
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof NoSuchFileException);
+    }
+  }
+}
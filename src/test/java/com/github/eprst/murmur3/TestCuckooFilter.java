@@ -0,0 +1,136 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestCuckooFilter extends TestCase {
+  private final Random r = new Random();
+
+  public void testPutContainsDelete() {
+    CuckooFilter filter = new CuckooFilter(30000, 42);
+    long base = r.nextLong();
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(filter.put(base + i));
+      assertTrue(filter.put("key" + i));
+      assertTrue(filter.put(new byte[]{1, (byte) i, (byte) (i >> 8)}));
+    }
+    assertEquals(30000, filter.size());
+    int falsePositives = 0;
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(filter.mightContain(base + i));
+      assertTrue(filter.mightContain(new StringBuilder("key").append(i)));
+      assertTrue(filter.mightContain(new byte[]{0, 1, (byte) i, (byte) (i >> 8), 0}, 1, 3));
+      if (filter.mightContain(base - 1 - i)) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 10);
+
+    for (int i = 0; i < 10000; i += 2) {
+      assertTrue(filter.delete(base + i));
+      assertTrue(filter.delete("key" + i));
+    }
+    assertEquals(20000, filter.size());
+    int stillThere = 0;
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(i % 2 == 0 || filter.mightContain(base + i));
+      if (i % 2 == 0 && filter.mightContain(base + i)) {
+        stillThere++;
+      }
+    }
+    assertTrue(stillThere < 10);
+  }
+
+  public void testFull() {
+    CuckooFilter filter = new CuckooFilter(1000, 0);
+    long capacity = filter.capacity();
+    long n = 0;
+    while (filter.put(n)) {
+      n++;
+    }
+    assertTrue(filter.loadFactor() > 0.9);
+    assertEquals(n, filter.size());
+    assertFalse(filter.put(n + 1));
+    for (long i = 0; i < n; i++) {
+      assertTrue(filter.mightContain(i));
+    }
+    // deleting makes room again
+    for (long i = 0; i < n / 10; i++) {
+      assertTrue(filter.delete(i));
+    }
+    assertTrue(filter.put(n + 1));
+    for (long i = n / 10; i < n; i++) {
+      assertTrue(filter.mightContain(i));
+    }
+    assertTrue(filter.mightContain(n + 1));
+    assertTrue(filter.size() <= capacity);
+  }
+
+  public void testConcurrent() throws Exception {
+    ConcurrentCuckooFilter filter = new ConcurrentCuckooFilter(200000, 7, 8);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        long base = t * 1000000L;
+        futures.add(executor.submit(() -> {
+          for (long i = 0; i < 24000; i++) {
+            assertTrue(filter.put(base + i));
+            assertTrue(filter.mightContain(base + i));
+            assertTrue(filter.put("s" + (base + i)));
+          }
+          for (long i = 0; i < 24000; i += 2) {
+            assertTrue(filter.delete(base + i));
+          }
+          for (long i = 1; i < 24000; i += 2) {
+            assertTrue(filter.mightContain(base + i));
+            assertTrue(filter.mightContain("s" + (base + i)));
+          }
+        }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+      assertEquals(4 * 36000, filter.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testConcurrentDeleteWithVictim() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int round = 0; round < 50; round++) {
+        ConcurrentCuckooFilter filter = new ConcurrentCuckooFilter(500, round, 4);
+        long base = r.nextLong();
+        int n = 0;
+        while (filter.put(base + n)) {
+          n++;
+        }
+        // the filter is full, with a fingerprint kept aside, and every delete must find its key
+        int keys = n;
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+          int first = t;
+          futures.add(executor.submit(() -> {
+            for (int i = first; i < keys; i += 4) {
+              assertTrue(filter.delete(base + i));
+            }
+          }));
+        }
+        for (Future<?> f : futures) {
+          f.get();
+        }
+        assertEquals(0, filter.size());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
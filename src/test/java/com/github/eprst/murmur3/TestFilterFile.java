@@ -0,0 +1,128 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TestFilterFile extends TestCase {
+  private final Random r = new Random();
+  private Path file;
+
+  @Override
+  protected void setUp() throws IOException {
+    file = Files.createTempFile("filter", ".mm3f");
+  }
+
+  @Override
+  protected void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  public void testRoundTrip() throws IOException {
+    int seed = r.nextInt();
+    CuckooFilter filter = new CuckooFilter(100000, seed);
+    long base = r.nextLong();
+    for (int i = 0; i < 100000; i++) {
+      assertTrue(filter.put(base + i));
+    }
+    FilterFile.write(filter, file);
+    assertEquals(FilterFile.HEADER_SIZE + filter.buckets.length * 8L, Files.size(file));
+
+    MappedCuckooFilter mapped = FilterFile.map(file);
+    CuckooFilter read = FilterFile.read(file);
+    assertEquals(seed, mapped.seed());
+    assertEquals(filter.size(), mapped.size());
+    assertEquals(filter.capacity(), mapped.capacity());
+    assertEquals(filter.size(), read.size());
+    for (int i = -100000; i < 100000; i++) {
+      boolean expected = filter.mightContain(base + i);
+      assertTrue(i < 0 || expected);
+      assertEquals(expected, mapped.mightContain(base + i));
+      assertEquals(expected, read.mightContain(base + i));
+    }
+    // the copy read back stays modifiable
+    assertTrue(read.delete(base));
+    assertTrue(read.put("new"));
+    assertTrue(read.mightContain("new"));
+  }
+
+  public void testFullFilter() throws IOException {
+    CuckooFilter filter = new CuckooFilter(1000, 1);
+    long n = 0;
+    while (filter.put(n)) {
+      n++;
+    }
+    assertTrue(filter.victimFingerprint != 0);
+    FilterFile.write(filter, file);
+    MappedCuckooFilter mapped = FilterFile.map(file);
+    CuckooFilter read = FilterFile.read(file);
+    for (long i = 0; i < n; i++) {
+      assertTrue(mapped.mightContain(i));
+      assertTrue(read.mightContain(i));
+    }
+    assertFalse(read.put(n + 1));
+  }
+
+  public void testBuildAndConcurrent() throws IOException {
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      keys.add("session-" + r.nextLong());
+    }
+    FilterFile.build(keys, 1000, 3, file);
+    MappedCuckooFilter mapped = FilterFile.map(file, false);
+    for (String key : keys) {
+      assertTrue(mapped.mightContain(key));
+      assertTrue(mapped.mightContain(new StringBuilder(key)));
+    }
+
+    ConcurrentCuckooFilter concurrent = new ConcurrentCuckooFilter(1000, 3);
+    for (String key : keys) {
+      concurrent.put(key.getBytes());
+    }
+    FilterFile.write(concurrent, file);
+    mapped = FilterFile.map(file);
+    assertEquals(1000, mapped.size());
+    for (String key : keys) {
+      assertTrue(mapped.mightContain(key.getBytes()));
+    }
+  }
+
+  public void testCorruption() throws IOException {
+    CuckooFilter filter = new CuckooFilter(1000, 0);
+    for (int i = 0; i < 500; i++) {
+      filter.put(i);
+    }
+    FilterFile.write(filter, file);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{1}), FilterFile.HEADER_SIZE + 100);
+    }
+    assertNotNull(FilterFile.map(file, false));
+    assertIOException(file);
+
+    Files.write(file, new byte[FilterFile.HEADER_SIZE + 8]);
+    assertIOException(file);
+    Files.write(file, new byte[10]);
+    assertIOException(file);
+  }
+
+  private static void assertIOException(Path file) {
+    try {
+      FilterFile.map(file);
+      fail();
+    } catch (IOException expected) {
+    }
+    try {
+      FilterFile.read(file);
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+}
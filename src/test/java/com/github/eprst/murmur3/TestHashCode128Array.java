@@ -0,0 +1,143 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class TestHashCode128Array extends TestCase {
+  private static final Comparator<MurmurHash3.HashCode128> ORDER =
+      (a, b) -> HashCode128Array.compare(a.val1, a.val2, b.val1, b.val2);
+
+  private final Random r = new Random();
+
+  public void testSort() {
+    for (int n : new int[]{0, 1, 2, 17, 1000, 100000}) {
+      HashCode128Array array = HashCode128Array.allocate(1);
+      List<MurmurHash3.HashCode128> expected = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        // narrow ranges to get duplicates and trivial digits
+        MurmurHash3.HashCode128 h = new MurmurHash3.HashCode128(
+            i % 3 == 0 ? r.nextInt(10) : r.nextLong(), i % 5 == 0 ? r.nextInt(10) : r.nextLong());
+        array.add(h);
+        expected.add(h);
+      }
+      expected.sort(ORDER);
+
+      array.sort();
+      assertTrue(array.isSorted());
+      assertEquals(n, array.size());
+      for (int i = 0; i < n; i++) {
+        assertEquals(expected.get(i), array.get(i));
+      }
+    }
+  }
+
+  public void testBinarySearch() {
+    HashCode128Array array = randomSorted(1000);
+    for (int i = 0; i < array.size(); i++) {
+      assertTrue(array.contains(array.get(i)));
+    }
+    for (int i = 0; i < 1000; i++) {
+      MurmurHash3.HashCode128 h = new MurmurHash3.HashCode128(r.nextLong(), r.nextLong());
+      int idx = array.binarySearch(h);
+      if (idx < 0) {
+        int insertion = -idx - 1;
+        if (insertion > 0) {
+          assertTrue(ORDER.compare(array.get(insertion - 1), h) < 0);
+        }
+        if (insertion < array.size()) {
+          assertTrue(ORDER.compare(array.get(insertion), h) > 0);
+        }
+      }
+    }
+  }
+
+  public void testSetOperations() {
+    TreeSet<MurmurHash3.HashCode128> a = new TreeSet<>(ORDER);
+    TreeSet<MurmurHash3.HashCode128> b = new TreeSet<>(ORDER);
+    for (int i = 0; i < 5000; i++) {
+      MurmurHash3.HashCode128 h = new MurmurHash3.HashCode128(r.nextLong(), r.nextLong());
+      switch (r.nextInt(3)) {
+        case 0:
+          a.add(h);
+          break;
+        case 1:
+          b.add(h);
+          break;
+        default:
+          a.add(h);
+          b.add(h);
+      }
+    }
+    HashCode128Array aa = toArray(a).sort();
+    HashCode128Array ba = toArray(b).sort();
+
+    TreeSet<MurmurHash3.HashCode128> expected = new TreeSet<>(a);
+    expected.retainAll(b);
+    assertEquals(expected, HashCode128Array.intersection(aa, ba));
+
+    expected = new TreeSet<>(a);
+    expected.addAll(b);
+    assertEquals(expected, HashCode128Array.union(aa, ba));
+
+    expected = new TreeSet<>(a);
+    expected.removeAll(b);
+    assertEquals(expected, HashCode128Array.difference(aa, ba));
+  }
+
+  public void testWriteAndMap() throws IOException {
+    HashCode128Array array = randomSorted(10000);
+    Path file = Files.createTempFile("hashes", ".bin");
+    try {
+      array.writeTo(file);
+      HashCode128Array mapped = HashCode128Array.map(file);
+      assertEquals(array.size(), mapped.size());
+      for (int i = 0; i < array.size(); i++) {
+        assertEquals(array.val1(i), mapped.val1(i));
+        assertEquals(array.val2(i), mapped.val2(i));
+      }
+      assertEquals(array.size(), HashCode128Array.intersection(array, mapped).size());
+      assertEquals(0, HashCode128Array.difference(mapped, array).size());
+
+      try {
+        mapped.add(1, 2);
+        fail();
+      } catch (UnsupportedOperationException ignored) {
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private HashCode128Array randomSorted(int n) {
+    HashCode128Array array = HashCode128Array.allocate(n);
+    for (int i = 0; i < n; i++) {
+      array.add(r.nextLong(), r.nextLong());
+    }
+    return array.sort();
+  }
+
+  private static HashCode128Array toArray(TreeSet<MurmurHash3.HashCode128> set) {
+    HashCode128Array array = HashCode128Array.allocate(set.size());
+    for (MurmurHash3.HashCode128 h : set) {
+      array.add(h);
+    }
+    return array;
+  }
+
+  private static void assertEquals(TreeSet<MurmurHash3.HashCode128> expected, HashCode128Array actual) {
+    assertTrue(actual.isSorted());
+    assertEquals(expected.size(), actual.size());
+    int i = 0;
+    for (MurmurHash3.HashCode128 h : expected) {
+      assertEquals(h, actual.get(i++));
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class TestHashPartitioner extends TestCase {
+  private final Random r = new Random();
+
+  public void testReduce() {
+    for (int n : new int[]{1, 2, 3, 7, 1000, Integer.MAX_VALUE}) {
+      assertEquals(0, HashPartitioner.reduce(0, n));
+      assertEquals(n - 1, HashPartitioner.reduce(-1, n));
+      for (int i = 0; i < 10000; i++) {
+        int p = HashPartitioner.reduce(r.nextInt(), n);
+        assertTrue(p >= 0 && p < n);
+      }
+    }
+  }
+
+  public void testUniform() {
+    int n = 10;
+    int count = 100000;
+    HashPartitioner partitioner = new HashPartitioner(n, r.nextInt());
+    int[] histogram = new int[n];
+    for (int i = 0; i < count; i++) {
+      histogram[partitioner.partition("key" + i)]++;
+    }
+    for (int h : histogram) {
+      assertTrue(Math.abs(h - count / n) < count / n / 10);
+    }
+  }
+
+  public void testBatch() {
+    RandomStringsGenerator rsg = new RandomStringsGenerator();
+    int count = 1000;
+    HashPartitioner partitioner = new HashPartitioner(1 + r.nextInt(50), r.nextInt());
+    CharSequence[] strings = new CharSequence[count + 10];
+    byte[][] bytes = new byte[count + 10][];
+    int[] hashes = new int[count];
+    for (int i = 0; i < count; i++) {
+      String s = rsg.randomUnicode(r.nextInt(30));
+      strings[i] = s;
+      bytes[i] = s.getBytes(StandardCharsets.UTF_8);
+      hashes[i] = MurmurHash3.murmurhash3_x86_32(s, 0, s.length(), 42);
+    }
+
+    int[] ids1 = new int[count];
+    int[] ids2 = new int[count];
+    partitioner.partition(strings, count, ids1);
+    partitioner.partition(bytes, count, ids2);
+    for (int i = 0; i < count; i++) {
+      assertEquals(partitioner.partition(strings[i]), ids1[i]);
+      assertEquals(ids1[i], ids2[i]);
+    }
+
+    HashPartitioner seeded = new HashPartitioner(partitioner.numPartitions(), 42);
+    seeded.partitionHashes(hashes, count, ids2);
+    for (int i = 0; i < count; i++) {
+      assertEquals(seeded.partition(bytes[i]), ids2[i]);
+    }
+  }
+
+  public void testSort() {
+    int n = 1 + r.nextInt(20);
+    int count = r.nextInt(5000);
+    HashPartitioner partitioner = new HashPartitioner(n, r.nextInt());
+    int[] ids = new int[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = r.nextInt(n);
+    }
+    int[] offsets = new int[n + 1];
+    int[] permutation = new int[count];
+    partitioner.sort(ids, count, offsets, permutation);
+
+    assertEquals(0, offsets[0]);
+    assertEquals(count, offsets[n]);
+    boolean[] seen = new boolean[count];
+    for (int p = 0; p < n; p++) {
+      int prev = -1;
+      for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+        int record = permutation[i];
+        assertEquals(p, ids[record]);
+        assertTrue("stable", record > prev);
+        assertFalse(seen[record]);
+        seen[record] = true;
+        prev = record;
+      }
+    }
+  }
+}
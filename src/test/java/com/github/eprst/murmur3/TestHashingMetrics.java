@@ -0,0 +1,75 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.github.eprst.murmur3.HashingMetrics.EntryPoint;
+
+public class TestHashingMetrics extends TestCase {
+  @Override
+  protected void setUp() {
+    HashingMetrics.reset();
+  }
+
+  public void testBuckets() {
+    assertEquals(0, HashingMetrics.bucket(0));
+    assertEquals(1, HashingMetrics.bucket(1));
+    assertEquals(2, HashingMetrics.bucket(2));
+    assertEquals(2, HashingMetrics.bucket(3));
+    assertEquals(3, HashingMetrics.bucket(4));
+    assertEquals(11, HashingMetrics.bucket(1024));
+    assertEquals(31, HashingMetrics.bucket(Integer.MAX_VALUE));
+    assertEquals(HashingMetrics.NUM_BUCKETS - 1, HashingMetrics.bucket(Long.MAX_VALUE));
+  }
+
+  public void testRecord() {
+    HashingMetrics.record(EntryPoint.X64_128_BYTES, 0);
+    HashingMetrics.record(EntryPoint.X64_128_BYTES, 10);
+    HashingMetrics.record(EntryPoint.X64_128_BYTES, 12);
+
+    assertEquals(3, HashingMetrics.calls(EntryPoint.X64_128_BYTES));
+    assertEquals(22, HashingMetrics.bytes(EntryPoint.X64_128_BYTES));
+    long[] histogram = HashingMetrics.lengthHistogram(EntryPoint.X64_128_BYTES);
+    assertEquals(1, histogram[0]);
+    assertEquals(2, histogram[4]);
+    assertEquals(0, HashingMetrics.calls(EntryPoint.X86_32_BYTES));
+    assertEquals("X64_128_BYTES: calls=3, bytes=22, lengths={0: 1, <16: 2}\n", HashingMetrics.report());
+
+    HashingMetrics.reset();
+    assertEquals(0, HashingMetrics.calls(EntryPoint.X64_128_BYTES));
+    assertEquals("", HashingMetrics.report());
+  }
+
+  public void testFacade() {
+    String s = "hello, \u0444world";
+    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+    MurmurHash3.HashCode128 expected = new MurmurHash3.HashCode128();
+    MurmurHash3.HashCode128 actual = new MurmurHash3.HashCode128();
+
+    assertEquals(MurmurHash3.murmurhash3_x86_32(b, 0, b.length, 1),
+                 InstrumentedMurmurHash3.murmurhash3_x86_32(b, 0, b.length, 1));
+    assertEquals(MurmurHash3.murmurhash3_x86_32(s, 0, s.length(), 1),
+                 InstrumentedMurmurHash3.murmurhash3_x86_32(s, 0, s.length(), 1));
+
+    MurmurHash3.murmurhash3_x64_128(b, 0, b.length, 1, expected);
+    InstrumentedMurmurHash3.murmurhash3_x64_128(b, 0, b.length, 1, actual);
+    assertEquals(expected, actual);
+    InstrumentedMurmurHash3.murmurhash3_x64_128(s, 0, s.length(), 1, null, actual);
+    assertEquals(expected, actual);
+    InstrumentedMurmurHash3.murmurhash3_x64_128_safe_ascii(s, 0, s.length(), 1, null, actual);
+    assertEquals(expected, actual);
+    new HashingSink128(1).putBytes(b).finish(actual);
+    assertEquals(expected, actual);
+
+    long expectedCalls = HashingMetrics.ENABLED ? 1 : 0;
+    assertEquals(expectedCalls, HashingMetrics.calls(EntryPoint.X86_32_BYTES));
+    assertEquals(expectedCalls, HashingMetrics.calls(EntryPoint.X86_32_STRING));
+    assertEquals(expectedCalls, HashingMetrics.calls(EntryPoint.X64_128_BYTES));
+    assertEquals(expectedCalls, HashingMetrics.calls(EntryPoint.X64_128_STRING));
+    assertEquals(expectedCalls, HashingMetrics.calls(EntryPoint.X64_128_SAFE_ASCII));
+    assertEquals(expectedCalls, HashingMetrics.calls(EntryPoint.SINK));
+    assertEquals(expectedCalls * b.length, HashingMetrics.bytes(EntryPoint.SINK));
+    assertEquals(expectedCalls * s.length(), HashingMetrics.bytes(EntryPoint.X64_128_STRING));
+  }
+}
@@ -4,6 +4,12 @@ import com.google.common.base.Charsets;
 import com.google.common.hash.*;
 import junit.framework.TestCase;
 
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Random;
@@ -146,6 +152,131 @@ public class TestHashingSink extends TestCase {
     }
   }
 
+  public void testPrimitiveArrays() {
+    Random r = new Random();
+    for (int i = 0; i < 1000; i++) {
+      int seed = r.nextInt();
+      // unaligned prefix makes sink fall back to element by element hashing
+      byte[] prefix = new byte[r.nextInt(20)];
+      r.nextBytes(prefix);
+      int offset = r.nextInt(5);
+      int len = r.nextInt(50);
+
+      long[] longs = new long[offset + len];
+      double[] doubles = new double[offset + len];
+      int[] ints = new int[offset + len];
+      short[] shorts = new short[offset + len];
+      for (int j = offset; j < offset + len; j++) {
+        longs[j] = r.nextLong();
+        doubles[j] = r.nextDouble();
+        ints[j] = r.nextInt();
+        shorts[j] = (short) r.nextInt();
+      }
+
+      HashingSink128 expected = new HashingSink128(seed).putBytes(prefix);
+      HashingSink128 actual = new HashingSink128(seed).putBytes(prefix);
+      for (int j = offset; j < offset + len; j++) {
+        expected.putLong(longs[j]);
+      }
+      actual.putLongs(longs, offset, len);
+      for (int j = offset; j < offset + len; j++) {
+        expected.putDouble(doubles[j]);
+      }
+      actual.putDoubles(doubles, offset, len);
+      for (int j = offset; j < offset + len; j++) {
+        expected.putInt(ints[j]);
+      }
+      actual.putInts(ints, offset, len);
+      for (int j = offset; j < offset + len; j++) {
+        expected.putShort(shorts[j]);
+      }
+      actual.putShorts(shorts, offset, len);
+      assertEquals(expected.finish(), actual.finish());
+    }
+  }
+
+  public void testByteBuffer() {
+    Random r = new Random();
+    for (int i = 0; i < 1000; i++) {
+      int seed = r.nextInt();
+      byte[] prefix = new byte[r.nextInt(20)];
+      r.nextBytes(prefix);
+      byte[] bytes = new byte[r.nextInt(100)];
+      r.nextBytes(bytes);
+      MurmurHash3.HashCode128 expected = new HashingSink128(seed).putBytes(prefix).putBytes(bytes).finish();
+
+      ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 3);
+      direct.position(3);
+      direct.put(bytes).position(3);
+      for (ByteBuffer buf : new ByteBuffer[]{ByteBuffer.wrap(bytes), direct,
+                                             direct.duplicate().order(ByteOrder.LITTLE_ENDIAN)}) {
+        HashingSink128 actual = new HashingSink128(seed).putBytes(prefix).putBytes(buf);
+        assertFalse(buf.hasRemaining());
+        assertEquals(expected, actual.finish());
+      }
+    }
+  }
+
+  public void testReader() throws IOException {
+    Random r = new Random();
+    RandomStringsGenerator rsg = new RandomStringsGenerator();
+    for (int i = 0; i < 200; i++) {
+      int seed = r.nextInt();
+      StringBuilder sb = new StringBuilder(rsg.randomUnicode(r.nextInt(i < 100 ? 50 : 20000)));
+      // surrogate pairs around block boundaries and an unpaired one at the end
+      for (int j = 0; j < 20 && sb.length() > 0; j++) {
+        sb.insert(r.nextInt(sb.length()), "\uD83D\uDE00");
+      }
+      if (r.nextBoolean()) {
+        sb.append('\uD83D');
+      }
+      String s = sb.toString();
+      MurmurHash3.HashCode128 expected = new HashingSink128(seed).putUtf8String(s, 0, s.length()).finish();
+
+      // reader returning random short chunks
+      Reader reader = new FilterReader(new StringReader(s)) {
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+          return super.read(cbuf, off, Math.min(len, 1 + r.nextInt(10)));
+        }
+      };
+      assertEquals(expected, new HashingSink128(seed).putReader(reader).finish());
+      MurmurHash3.HashCode128 actual = new MurmurHash3.HashCode128();
+      MurmurHash3.murmurhash3_x64_128(new StringReader(s), seed, actual);
+      assertEquals(expected, actual);
+    }
+  }
+
+  public void testCharsets() {
+    Random r = new Random();
+    RandomStringsGenerator rsg = new RandomStringsGenerator();
+    Charset[] charsets = {
+        StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII, StandardCharsets.UTF_16LE, StandardCharsets.UTF_16BE,
+        StandardCharsets.UTF_16, Charset.forName("UTF-32"), Charset.forName("windows-1251"), Charset.forName("GB18030"),
+        Charset.forName("x-UTF-16LE-BOM")
+    };
+    for (int i = 0; i < 300; i++) {
+      int seed = r.nextInt();
+      int len = r.nextInt(i < 200 ? 50 : 10000);
+      StringBuilder sb = new StringBuilder(i % 3 == 0 ? rsg.randomAscii(len) : rsg.randomUnicode(len));
+      // valid and unpaired surrogates
+      for (int j = 0; j < 5 && sb.length() > 0; j++) {
+        sb.insert(r.nextInt(sb.length()), r.nextBoolean() ? "\uD83D\uDE00" : r.nextBoolean() ? "\uD83D" : "\uDE00");
+      }
+      String s = "xy" + sb + "z";
+      for (Charset charset : charsets) {
+        byte[] prefix = new byte[r.nextInt(20)];
+        r.nextBytes(prefix);
+        HashingSink128 sink = new HashingSink128(seed).putBytes(prefix);
+        MurmurHash3.HashCode128 expected = new HashingSink128(seed).putBytes(prefix)
+            .putBytes(s.substring(2, s.length() - 1).getBytes(charset)).finish();
+        assertEquals(charset.name(), expected, sink.putString(s, 2, s.length() - 3, charset).finish());
+        // cached encoder state is reset between calls
+        assertEquals(charset.name(), expected, sink.putBytes(prefix).putString(s, 2, s.length() - 3, charset).finish());
+      }
+    }
+  }
+
   public void testReset() {
     RandomHashableGenerator g = new RandomHashableGenerator();
     Hashable h = g.randomHashable(200);
@@ -0,0 +1,155 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestKmvSketch extends TestCase {
+  private final Random r = new Random();
+
+  public void testExact() {
+    KmvSketch sketch = new KmvSketch(256, 0);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 100; j++) {
+        sketch.update("user" + j);
+        sketch.update(new byte[]{(byte) j});
+      }
+    }
+    assertEquals(200, sketch.retained());
+    assertEquals(200.0, sketch.estimate());
+    assertEquals(1.0, sketch.theta());
+  }
+
+  public void testEstimate() {
+    KmvSketch sketch = new KmvSketch(1024, r.nextInt());
+    long base = r.nextLong();
+    for (int i = 0; i < 100000; i++) {
+      sketch.update(base + i);
+      sketch.update(base + r.nextInt(i + 1));
+    }
+    assertEquals(1024, sketch.retained());
+    assertEquals(100000, sketch.estimate(), 12000);
+    assertTrue(sketch.theta() < 1);
+  }
+
+  public void testSetOperations() {
+    int seed = r.nextInt();
+    KmvSketch a = new KmvSketch(4096, seed);
+    KmvSketch b = new KmvSketch(4096, seed);
+    for (long i = 0; i < 60000; i++) {
+      a.update(i);
+    }
+    for (long i = 40000; i < 100000; i++) {
+      b.update(i);
+    }
+    assertEquals(100000, KmvSketch.union(a, b).estimate(), 6000);
+    assertEquals(20000, KmvSketch.intersection(a, b).estimate(), 3000);
+    assertEquals(40000, KmvSketch.difference(a, b).estimate(), 4000);
+    assertEquals(40000, KmvSketch.difference(b, a).estimate(), 4000);
+
+    KmvSketch small = new KmvSketch(4096, seed);
+    for (long i = 59990; i < 60010; i++) {
+      small.update(i);
+    }
+    KmvSketch exact = new KmvSketch(4096, seed);
+    for (long i = 59995; i < 60015; i++) {
+      exact.update(i);
+    }
+    assertEquals(15.0, KmvSketch.intersection(small, exact).estimate());
+    assertEquals(5.0, KmvSketch.difference(small, exact).estimate());
+    assertEquals(25.0, KmvSketch.union(small, exact).estimate());
+
+    try {
+      KmvSketch.union(a, new KmvSketch(4096, seed + 1));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testUnionOfPartsEqualsWhole() {
+    KmvSketch whole = new KmvSketch(500, 7);
+    KmvSketch odd = new KmvSketch(500, 7);
+    KmvSketch even = new KmvSketch(500, 7);
+    for (int i = 0; i < 50000; i++) {
+      String key = "id" + i;
+      whole.update(key);
+      (i % 2 == 0 ? even : odd).update(key);
+    }
+    assertTrue(Arrays.equals(whole.toBytes(), KmvSketch.union(odd, even).toBytes()));
+  }
+
+  public void testSerialization() {
+    KmvSketch sketch = new KmvSketch(1000, -5);
+    for (int i = 0; i < 1000000; i++) {
+      sketch.update(i);
+    }
+    byte[] bytes = sketch.toBytes();
+    assertTrue(bytes.length < 1000 * 8);
+    KmvSketch copy = KmvSketch.fromBytes(bytes);
+    assertEquals(sketch.k(), copy.k());
+    assertEquals(sketch.seed(), copy.seed());
+    assertEquals(sketch.estimate(), copy.estimate());
+    assertTrue(Arrays.equals(bytes, copy.toBytes()));
+    // copy keeps working
+    sketch.update(-1L);
+    copy.update(-1L);
+    assertTrue(Arrays.equals(sketch.toBytes(), copy.toBytes()));
+
+    assertMalformed(Arrays.copyOf(bytes, bytes.length - 1));
+    assertMalformed(Arrays.copyOf(bytes, bytes.length + 1));
+    byte[] badVersion = bytes.clone();
+    badVersion[0] = 2;
+    assertMalformed(badVersion);
+    // k = n = 2^28 with no values, rejected without allocating space for them
+    byte more = (byte) 0x80;
+    assertMalformed(new byte[]{1, more, more, more, more, 1, 0, 0x7F, more, more, more, more, 1});
+    // k = 2^28 with no values is valid, and doesn't allocate for k values
+    KmvSketch empty = KmvSketch.fromBytes(new byte[]{1, more, more, more, more, 1, 0, 5, 0});
+    assertEquals(1 << 28, empty.k());
+    assertEquals(0, empty.retained());
+  }
+
+  private static void assertMalformed(byte[] bytes) {
+    try {
+      KmvSketch.fromBytes(bytes);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testConcurrent() throws Exception {
+    KmvSketch expected = new KmvSketch(1000, 1);
+    for (long i = 0; i < 400000; i++) {
+      expected.update(i);
+    }
+    KmvSketch sketch = new KmvSketch(1000, 1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        long first = t;
+        futures.add(executor.submit(() -> {
+          for (long i = first; i < 400000; i += 4) {
+            sketch.update(i);
+            sketch.update(Long.toString(i));
+          }
+        }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    for (long i = 0; i < 400000; i++) {
+      expected.update(Long.toString(i));
+    }
+    assertTrue(Arrays.equals(expected.toBytes(), sketch.toBytes()));
+  }
+}
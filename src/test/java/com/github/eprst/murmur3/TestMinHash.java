@@ -0,0 +1,106 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+public class TestMinHash extends TestCase {
+  private final Random r = new Random();
+
+  public void testSimilarityEstimate() {
+    MinHash minHash = new MinHash(512, 0);
+    HashingSink128 sink = new HashingSink128(0);
+    HashCode128 h = new HashCode128();
+    for (double expected : new double[]{0, 0.1, 0.5, 0.9, 1}) {
+      // sets of 2000 elements sharing expected Jaccard similarity
+      int shared = (int) Math.round(4000 * expected / (1 + expected));
+      long base = r.nextLong();
+      long[] a = minHash.newSignature();
+      long[] b = minHash.newSignature();
+      for (int i = 0; i < 2000; i++) {
+        sink.putLong(base + i).finish(h);
+        minHash.add(a, h);
+        sink.putLong(base + 2000 - shared + i).finish(h);
+        minHash.add(b, h);
+      }
+      assertEquals(expected, MinHash.similarity(a, b), 0.1);
+    }
+  }
+
+  public void testShingles() {
+    MinHash minHash = new MinHash(64, 42);
+    String text = "  the quick\tbrown fox  jumps over\nthe lazy dog ";
+    long[] words = minHash.newSignature();
+    minHash.addWordShingles(words, text, 2);
+    long[] expected = minHash.newSignature();
+    for (String shingle : new String[]{"the quick", "quick\tbrown", "brown fox", "fox  jumps", "jumps over",
+                                       "over\nthe", "the lazy", "lazy dog"}) {
+      HashCode128 h = new HashCode128();
+      MurmurHash3.murmurhash3_x64_128(shingle, 0, shingle.length(), 42, null, h);
+      minHash.add(expected, h);
+    }
+    assertTrue(Arrays.equals(expected, words));
+
+    long[] union = minHash.newSignature();
+    for (String shingle : new String[]{"the quick", "quick\tbrown", "brown fox", "fox  jumps", "jumps over",
+                                       "over\nthe", "the lazy", "lazy dog"}) {
+      long[] single = minHash.newSignature();
+      minHash.addShingle(single, "x" + shingle + "y", 1, shingle.length());
+      MinHash.union(union, single);
+    }
+    assertTrue(Arrays.equals(expected, union));
+
+    long[] few = minHash.newSignature();
+    minHash.addWordShingles(few, " single ", 3);
+    long[] single = minHash.newSignature();
+    minHash.addShingle(single, "single", 0, 6);
+    assertTrue(Arrays.equals(single, few));
+
+    long[] empty = minHash.newSignature();
+    minHash.addWordShingles(empty, "   ", 3);
+    minHash.addCharShingles(empty, "ab", 3);
+    assertTrue(Arrays.equals(minHash.newSignature(), empty));
+
+    long[] chars = minHash.newSignature();
+    minHash.addCharShingles(chars, "abcd", 3);
+    long[] manual = minHash.newSignature();
+    minHash.addShingle(manual, "abc", 0, 3);
+    minHash.addShingle(manual, "bcd", 0, 3);
+    assertTrue(Arrays.equals(manual, chars));
+  }
+
+  public void testBands() {
+    MinHash minHash = new MinHash(128, 0);
+    RandomStringsGenerator rsg = new RandomStringsGenerator();
+    StringBuilder doc = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      doc.append(rsg.randomAscii(1 + r.nextInt(8))).append(' ');
+    }
+    long[] a = minHash.newSignature();
+    minHash.addWordShingles(a, doc, 3);
+    doc.append("one more sentence");
+    long[] b = minHash.newSignature();
+    minHash.addWordShingles(b, doc, 3);
+    assertTrue(MinHash.similarity(a, b) > 0.9);
+
+    long[] bandsA = MinHash.bandHashes(a, 32, 0, new long[32]);
+    long[] bandsB = MinHash.bandHashes(b, 32, 0, new long[32]);
+    int equal = 0;
+    for (int i = 0; i < 32; i++) {
+      if (bandsA[i] == bandsB[i]) {
+        equal++;
+      }
+    }
+    assertTrue(equal > 16);
+    assertTrue(MinHash.candidateProbability(0.9, 32, 4) > 0.99);
+    assertTrue(MinHash.candidateProbability(0.1, 32, 4) < 0.01);
+    try {
+      MinHash.bandHashes(a, 3, 0, new long[3]);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+public class TestMurmur3Sum extends TestCase {
+  private final Random r = new Random();
+  private Path root;
+
+  @Override
+  protected void setUp() throws IOException {
+    root = Files.createTempDirectory("murmur3sum");
+  }
+
+  @Override
+  protected void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  public void testHashAndCheck() throws IOException {
+    Map<String, byte[]> files = new HashMap<>();
+    for (int i = 0; i < 50; i++) {
+      Path dir = root.resolve("d" + (i % 4)).resolve("e" + (i % 3));
+      Files.createDirectories(dir);
+      byte[] b = new byte[i == 7 ? Murmur3Sum.MAP_THRESHOLD * 3 + 1 : r.nextInt(100)];
+      r.nextBytes(b);
+      Path file = dir.resolve("f" + i);
+      Files.write(file, b);
+      files.put(file.toString(), b);
+    }
+
+    String sums = run(0, "-t", "3", "-s", "42", root.toString());
+    String[] lines = sums.split("\n");
+    assertEquals(files.size() + 1, lines.length);
+    String previous = "";
+    for (int i = 0; i < files.size(); i++) {
+      String path = lines[i].substring(34);
+      assertTrue(path.compareTo(previous) > 0);
+      previous = path;
+      byte[] b = files.get(path);
+      HashCode128 expected = new HashCode128();
+      MurmurHash3.murmurhash3_x64_128(b, 0, b.length, 42, expected);
+      assertEquals(expected + "  " + path, lines[i]);
+    }
+    assertTrue(lines[files.size()].startsWith("# aggregate "));
+    assertEquals(sums, run(0, "-t", "1", "-s", "42", root.toString()));
+
+    Path sumFile = Files.createTempFile("murmur3sum", ".txt");
+    try {
+      Files.write(sumFile, sums.getBytes(StandardCharsets.UTF_8));
+      String check = run(0, "-s", "42", "-c", sumFile.toString());
+      assertTrue(check.contains(lines[0].substring(34) + ": OK"));
+      assertFalse(check.contains("FAILED"));
+
+      Files.write(root.resolve("d1").resolve("e1").resolve("f1"), new byte[]{1, 2, 3});
+      check = run(1, "-s", "42", "-c", sumFile.toString());
+      assertTrue(check.contains("f1: FAILED"));
+      assertTrue(check.contains("aggregate: FAILED"));
+      run(1, "-s", "43", "-c", sumFile.toString());
+    } finally {
+      Files.delete(sumFile);
+    }
+  }
+
+  public void testEscapedPaths() throws IOException {
+    Path file = root.resolve("a\nb\\c\rd");
+    Path plain = root.resolve("e");
+    Files.write(file, new byte[]{1, 2, 3});
+    Files.write(plain, new byte[]{4});
+    HashCode128 expected = new HashCode128();
+    MurmurHash3.murmurhash3_x64_128(new byte[]{1, 2, 3}, 0, 3, 0, expected);
+
+    String sums = run(0, root.toString());
+    String[] lines = sums.split("\n");
+    assertEquals(3, lines.length);
+    assertEquals("\\" + expected + "  " + root + "/a\\nb\\\\c\\rd", lines[0]);
+    assertTrue(lines[1].endsWith("  " + plain));
+
+    Path sumFile = Files.createTempFile("murmur3sum", ".txt");
+    try {
+      Files.write(sumFile, sums.getBytes(StandardCharsets.UTF_8));
+      String check = run(0, "-c", sumFile.toString());
+      assertTrue(check.contains("\\" + root + "/a\\nb\\\\c\\rd: OK"));
+      assertTrue(check.contains(plain + ": OK"));
+      assertTrue(check.contains("aggregate: OK"));
+
+      Files.write(sumFile, ("\\" + expected + "  " + root + "/a\\x\n").getBytes(StandardCharsets.UTF_8));
+      run(1, "-c", sumFile.toString());
+    } finally {
+      Files.delete(sumFile);
+    }
+    assertEquals("a\nb\\c\rd", Murmur3Sum.unescape(Murmur3Sum.escape("a\nb\\c\rd")));
+  }
+
+  public void testReadFailure() throws IOException {
+    Murmur3Sum sum = new Murmur3Sum(5, ForkJoinPool.commonPool());
+    byte[] b = new byte[100];
+    r.nextBytes(b);
+    // fails after the first 40 bytes
+    InputStream head = new ByteArrayInputStream(b, 0, 40);
+    InputStream failing = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("injected");
+      }
+
+      @Override
+      public int read(byte[] buf, int off, int len) throws IOException {
+        int n = head.read(buf, off, len);
+        if (n < 0) {
+          throw new IOException("injected");
+        }
+        return n;
+      }
+    };
+    try {
+      sum.hashStream(Channels.newChannel(failing), new HashCode128());
+      fail();
+    } catch (IOException expected) {
+    }
+
+    Path file = root.resolve("f");
+    Files.write(file, b);
+    HashCode128 expected = new HashCode128();
+    MurmurHash3.murmurhash3_x64_128(b, 0, b.length, 5, expected);
+    assertEquals(expected, sum.hashFile(file));
+  }
+
+  public void testUsage() {
+    run(2);
+    run(2, "-t");
+  }
+
+  private static String run(int expectedStatus, String... args) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    assertEquals(expectedStatus, Murmur3Sum.run(args, new PrintStream(out), new PrintStream(err)));
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -5,9 +5,12 @@ import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import junit.framework.TestCase;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Random;
 
 public class TestMurmurHash3 extends TestCase {
@@ -82,6 +85,9 @@ public class TestMurmurHash3 extends TestCase {
     assertEquals(guava128.asLong(), r1.val1);
     assertEquals(guava128, HashCode.fromBytes(r1.getBytes()));
 
+    MurmurHash3.murmurhash3_x64_128_safe_ascii(s, pre, s.length() - pre - post, seed, null, r2);
+    assertEquals(s, r1, r2);
+
     if (ascii) {
       MurmurHash3.murmurhash3_x64_128_ascii(s, pre, s.length() - pre - post, seed, r2);
       assertEquals(s, r1, r2);
@@ -186,6 +192,83 @@ public class TestMurmurHash3 extends TestCase {
     }
   }
 
+  public void testSafeAsciiFallback() {
+    RandomStringsGenerator rsg = new RandomStringsGenerator();
+    Random r = new Random();
+    byte[] buf19 = new byte[19];
+    MurmurHash3.HashCode128 r1 = new MurmurHash3.HashCode128();
+    MurmurHash3.HashCode128 r2 = new MurmurHash3.HashCode128();
+    for (int i = 0; i < 10000; i++) {
+      // ASCII prefix of any length followed by unicode characters, switching to UTF-8 at any position
+      String s = rsg.randomAscii(r.nextInt(100)) + rsg.randomUnicode(r.nextInt(20)) + rsg.randomAscii(r.nextInt(40));
+      int seed = r.nextInt();
+      MurmurHash3.murmurhash3_x64_128(s, 0, s.length(), seed, null, r1);
+      MurmurHash3.murmurhash3_x64_128_safe_ascii(s, 0, s.length(), seed, buf19, r2);
+      assertEquals(s, r1, r2);
+    }
+  }
+
+  public void testPrimitiveArrays() {
+    Random r = new Random();
+    MurmurHash3.HashCode128 expected = new MurmurHash3.HashCode128();
+    MurmurHash3.HashCode128 actual = new MurmurHash3.HashCode128();
+    for (int i = 0; i < 1000; i++) {
+      int seed = r.nextInt();
+      int offset = r.nextInt(5);
+      int len = r.nextInt(100);
+      ByteBuffer bb = ByteBuffer.allocate(len * 8).order(ByteOrder.LITTLE_ENDIAN);
+
+      long[] longs = new long[offset + len];
+      double[] doubles = new double[offset + len];
+      int[] ints = new int[offset + len];
+      short[] shorts = new short[offset + len];
+      for (int j = offset; j < offset + len; j++) {
+        longs[j] = r.nextLong();
+        doubles[j] = r.nextDouble();
+        ints[j] = r.nextInt();
+        shorts[j] = (short) r.nextInt();
+      }
+
+      bb.clear();
+      bb.asLongBuffer().put(longs, offset, len);
+      MurmurHash3.murmurhash3_x64_128(bb.array(), 0, len * 8, seed, expected);
+      MurmurHash3.murmurhash3_x64_128(longs, offset, len, seed, actual);
+      assertEquals(expected, actual);
+
+      bb.clear();
+      bb.asDoubleBuffer().put(doubles, offset, len);
+      MurmurHash3.murmurhash3_x64_128(bb.array(), 0, len * 8, seed, expected);
+      MurmurHash3.murmurhash3_x64_128(doubles, offset, len, seed, actual);
+      assertEquals(expected, actual);
+
+      bb.clear();
+      bb.asIntBuffer().put(ints, offset, len);
+      MurmurHash3.murmurhash3_x64_128(bb.array(), 0, len * 4, seed, expected);
+      MurmurHash3.murmurhash3_x64_128(ints, offset, len, seed, actual);
+      assertEquals(expected, actual);
+
+      bb.clear();
+      bb.asShortBuffer().put(shorts, offset, len);
+      MurmurHash3.murmurhash3_x64_128(bb.array(), 0, len * 2, seed, expected);
+      MurmurHash3.murmurhash3_x64_128(shorts, offset, len, seed, actual);
+      assertEquals(expected, actual);
+    }
+  }
+
+  public void testLong() {
+    Random r = new Random();
+    MurmurHash3.HashCode128 expected = new MurmurHash3.HashCode128();
+    MurmurHash3.HashCode128 actual = new MurmurHash3.HashCode128();
+    for (int i = 0; i < 1000; i++) {
+      long key = r.nextLong();
+      int seed = r.nextInt();
+      MurmurHash3.murmurhash3_x64_128(new long[]{key}, 0, 1, seed, expected);
+      MurmurHash3.murmurhash3_x64_128(key, seed, actual);
+      assertEquals(expected, actual);
+      assertEquals(expected, new HashingSink128(seed).putLong(key).finish());
+    }
+  }
+
   public void testToFromBytes() {
     Random r = new Random();
     for (int i = 0; i < 10000; i++) {
@@ -198,6 +281,70 @@ public class TestMurmurHash3 extends TestCase {
     }
   }
 
+  public void testEncodings() {
+    Random r = new Random();
+    Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+    char[] chars = new char[40];
+    byte[] bytes = new byte[40];
+    ByteBuffer buffer = ByteBuffer.allocate(40);
+    StringBuilder sb = new StringBuilder();
+    MurmurHash3.HashCode128 parsed = new MurmurHash3.HashCode128();
+    for (int i = 0; i < 10000; i++) {
+      MurmurHash3.HashCode128 h = new MurmurHash3.HashCode128(r.nextLong(), r.nextLong());
+      int offset = r.nextInt(8);
+      String hex = h.toString();
+      String b64 = base64.encodeToString(h.getBytes());
+
+      assertEquals(offset + 16, h.writeBytes(bytes, offset));
+      assertEquals(h, MurmurHash3.HashCode128.fromBytes(bytes, offset, parsed));
+      buffer.clear();
+      h.writeBytes(buffer);
+      assertTrue(Arrays.equals(h.getBytes(), Arrays.copyOf(buffer.array(), 16)));
+
+      assertEquals(offset + 32, h.writeHex(chars, offset));
+      assertEquals(hex, new String(chars, offset, 32));
+      h.writeHex(bytes, offset);
+      assertEquals(hex, new String(bytes, offset, 32, StandardCharsets.US_ASCII));
+      buffer.clear();
+      h.writeHex(buffer);
+      assertEquals(hex, new String(buffer.array(), 0, 32, StandardCharsets.US_ASCII));
+      sb.setLength(0);
+      assertEquals(hex, h.appendHex(sb.append('x')).substring(1));
+      assertEquals(h, MurmurHash3.HashCode128.parseHex(sb, 1, parsed));
+      assertEquals(h, MurmurHash3.HashCode128.parseHex(hex.toUpperCase(), 0, parsed));
+
+      assertEquals(offset + 22, h.writeBase64(chars, offset));
+      assertEquals(b64, new String(chars, offset, 22));
+      h.writeBase64(bytes, offset);
+      assertEquals(b64, new String(bytes, offset, 22, StandardCharsets.US_ASCII));
+      buffer.clear();
+      h.writeBase64(buffer);
+      assertEquals(b64, new String(buffer.array(), 0, 22, StandardCharsets.US_ASCII));
+      sb.setLength(0);
+      assertEquals(b64, h.appendBase64(sb.append('x')).substring(1));
+      assertEquals(h, MurmurHash3.HashCode128.parseBase64(sb, 1, parsed));
+    }
+
+    try {
+      MurmurHash3.HashCode128.parseHex("0123456789abcdef0123456789abcdeg", 0, parsed);
+      fail();
+    } catch (IllegalArgumentException ignored) {
+    }
+    try {
+      MurmurHash3.HashCode128.parseBase64("AAAAAAAAAAAAAAAAAAAAA+", 0, parsed);
+      fail();
+    } catch (IllegalArgumentException ignored) {
+    }
+    // only 2 bits of the last character are used, 'B' encodes the same bits as 'A'
+    assertEquals(new MurmurHash3.HashCode128(),
+                 MurmurHash3.HashCode128.parseBase64("AAAAAAAAAAAAAAAAAAAAAA", 0, parsed));
+    try {
+      MurmurHash3.HashCode128.parseBase64("AAAAAAAAAAAAAAAAAAAAAB", 0, parsed);
+      fail();
+    } catch (IllegalArgumentException ignored) {
+    }
+  }
+
 }
 
 
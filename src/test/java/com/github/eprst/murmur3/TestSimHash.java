@@ -0,0 +1,69 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class TestSimHash extends TestCase {
+  private final Random r = new Random();
+
+  public void testFingerprint() {
+    RandomStringsGenerator rsg = new RandomStringsGenerator();
+    StringBuilder page = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      page.append(rsg.randomAscii(1 + r.nextInt(10))).append(i % 10 == 0 ? '\n' : ' ');
+    }
+    SimHash simHash = new SimHash(0);
+    long fingerprint = simHash.addTokens(page).finish();
+    assertEquals(fingerprint, simHash.addTokens(page.toString()).finish());
+
+    String edited = page + " a few more words";
+    assertTrue(SimHash.distance(fingerprint, simHash.addTokens(edited).finish()) <= 6);
+    assertTrue(SimHash.distance(fingerprint, new SimHash(1).addTokens(page).finish()) > 6);
+
+    // tokens by hand, weights add up
+    simHash.addToken("xaby", 1, 2, 1).addToken("cd", 0, 2, 2).addToken("cd", 0, 2, 1);
+    long manual = simHash.finish();
+    assertEquals(manual, simHash.addTokens("ab cd\tcd  cd").finish());
+    assertEquals(manual, simHash.addToken("cd", 0, 2, 5).addToken("ab", 0, 2, 1).finish());
+    assertEquals(0, simHash.finish());
+  }
+
+  public void testIndex() {
+    for (int maxDistance : new int[]{0, 1, 3, 6}) {
+      long[] fingerprints = new long[2000];
+      for (int i = 0; i < fingerprints.length; i++) {
+        fingerprints[i] = r.nextLong();
+      }
+      // a few near duplicates
+      for (int i = 0; i < 100; i++) {
+        fingerprints[1000 + i] = flip(fingerprints[i], r.nextInt(maxDistance + 3));
+      }
+      SimHash.Index index = new SimHash.Index(fingerprints, maxDistance);
+      long[] result = new long[fingerprints.length];
+      for (int q = 0; q < 300; q++) {
+        long query = q < 200 ? flip(fingerprints[r.nextInt(fingerprints.length)], r.nextInt(maxDistance + 3))
+                             : r.nextLong();
+        int expected = 0;
+        for (long f : fingerprints) {
+          if (SimHash.distance(f, query) <= maxDistance) {
+            expected++;
+          }
+        }
+        int found = index.query(query, result);
+        assertEquals(expected, found);
+        for (int i = 0; i < found; i++) {
+          assertTrue(SimHash.distance(result[i], query) <= maxDistance);
+        }
+        assertEquals(expected > 0, index.containsNear(query));
+      }
+    }
+  }
+
+  private long flip(long fingerprint, int bits) {
+    for (int i = 0; i < bits; i++) {
+      fingerprint ^= 1L << r.nextInt(64);
+    }
+    return fingerprint;
+  }
+}
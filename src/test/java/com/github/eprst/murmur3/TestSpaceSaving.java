@@ -0,0 +1,152 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TestSpaceSaving extends TestCase {
+  private final Random r = new Random();
+
+  public void testExactWhenFewKeys() {
+    SpaceSaving s = new SpaceSaving(10, 1);
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j <= i; j++) {
+        s.add(new StringBuilder("key").append(i));
+      }
+    }
+    s.add(new byte[]{1, 2, 3, 4}, 1, 2, 100);
+    List<SpaceSaving.Entry> top = s.topK();
+    assertEquals(10, top.size());
+    assertTrue(Arrays.equals(new byte[]{2, 3}, (byte[]) top.get(0).key));
+    assertEquals(101, top.get(0).count);
+    assertEquals(1, top.get(0).error);
+    // key0 was evicted by the byte key
+    for (int i = 1; i < 10; i++) {
+      SpaceSaving.Entry e = top.get(10 - i);
+      assertEquals("key" + i, e.key);
+      assertEquals(i + 1, e.count);
+      assertEquals(0, e.error);
+    }
+    assertEquals(155, s.totalWeight());
+  }
+
+  public void testHashOnlyEvictions() {
+    SpaceSaving s = new SpaceSaving(1, 3);
+    s.add("hello");
+    MurmurHash3.HashCode128 hash = new MurmurHash3.HashCode128();
+    MurmurHash3.murmurhash3_x64_128(new byte[]{7}, 0, 1, 3, hash);
+    s.add(hash, 5);
+    SpaceSaving.Entry e = s.topK().get(0);
+    assertNull(e.key);
+    assertEquals(hash, e.hash);
+    assertEquals(6, e.count);
+    assertEquals(1, e.error);
+    // a keyed add evicting a hash-only entry gets its key back
+    s.add("world", 10);
+    assertEquals("world", s.topK().get(0).key);
+
+    SpaceSaving mixed = new SpaceSaving(4, 3);
+    for (int i = 0; i < 1000; i++) {
+      if (i % 2 == 0) {
+        mixed.add("key" + i);
+      } else {
+        MurmurHash3.murmurhash3_x64_128(new byte[]{(byte) i, (byte) (i >> 8)}, 0, 2, 3, hash);
+        mixed.add(hash, 1);
+      }
+      for (SpaceSaving.Entry entry : mixed.topK()) {
+        if (entry.key != null) {
+          MurmurHash3.HashCode128 expected = new MurmurHash3.HashCode128();
+          String key = (String) entry.key;
+          MurmurHash3.murmurhash3_x64_128_safe_ascii(key, 0, key.length(), 3, new byte[19], expected);
+          assertEquals(expected, entry.hash);
+        }
+      }
+    }
+  }
+
+  public void testBounds() {
+    SpaceSaving s = new SpaceSaving(50, 0);
+    Map<String, Long> exact = new HashMap<>();
+    int[] stream = zipf(200000, 5000, 1.1);
+    for (int x : stream) {
+      String key = "k" + x;
+      long w = 1 + (x % 3 == 0 ? r.nextInt(3) : 0);
+      s.add(key, w);
+      exact.merge(key, w, Long::sum);
+    }
+    checkBounds(s, exact);
+    // every key with a count above totalWeight / k is reported
+    for (Map.Entry<String, Long> e : exact.entrySet()) {
+      if (e.getValue() > s.totalWeight() / s.k()) {
+        boolean found = false;
+        for (SpaceSaving.Entry m : s.topK()) {
+          found |= m.key.equals(e.getKey());
+        }
+        assertTrue(e.getKey(), found);
+      }
+    }
+  }
+
+  public void testMerge() {
+    SpaceSaving merged = new SpaceSaving(50, 3);
+    Map<String, Long> exact = new HashMap<>();
+    int[] stream = zipf(100000, 5000, 1.2);
+    for (int t = 0; t < 4; t++) {
+      SpaceSaving part = new SpaceSaving(50, 3);
+      for (int i = t; i < stream.length; i += 4) {
+        String key = "k" + (stream[i] + t % 2);
+        part.add(key);
+        exact.merge(key, 1L, Long::sum);
+      }
+      merged.merge(part);
+    }
+    assertEquals(100000, merged.totalWeight());
+    assertEquals(50, merged.size());
+    checkBounds(merged, exact);
+
+    // merged summary keeps working
+    merged.add("new", 50000);
+    exact.put("new", 50000L);
+    checkBounds(merged, exact);
+    assertEquals("new", merged.topK().get(0).key);
+
+    try {
+      merged.merge(new SpaceSaving(50, 4));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  private static void checkBounds(SpaceSaving s, Map<String, Long> exact) {
+    long maxError = s.totalWeight() / s.k();
+    long prev = Long.MAX_VALUE;
+    for (SpaceSaving.Entry e : s.topK()) {
+      long trueCount = exact.get((String) e.key);
+      assertTrue(e.count <= prev);
+      assertTrue(e.count >= trueCount);
+      assertTrue(e.count - e.error <= trueCount);
+      assertTrue(e.error <= maxError);
+      prev = e.count;
+    }
+  }
+
+  /** Zipf distributed values in [0, n) */
+  private int[] zipf(int length, int n, double exponent) {
+    double[] cdf = new double[n];
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += 1 / Math.pow(i + 1, exponent);
+      cdf[i] = sum;
+    }
+    int[] result = new int[length];
+    for (int i = 0; i < length; i++) {
+      int j = Arrays.binarySearch(cdf, r.nextDouble() * sum);
+      result[i] = Math.min(n - 1, j < 0 ? -j - 1 : j);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,102 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+public class TestStringHashCache extends TestCase {
+  private final RandomStringsGenerator rsg = new RandomStringsGenerator();
+  private final Random r = new Random();
+
+  public void testHits() {
+    StringHashCache cache = new StringHashCache(42, 1024);
+    String s = rsg.randomUnicode(20);
+    HashCode128 out = new HashCode128();
+    assertFalse(cache.get(s, out));
+    assertEquals(expected(s, 42), cache.hash(s));
+    assertTrue(cache.get(s, out));
+    assertEquals(expected(s, 42), out);
+
+    // keyed on identity
+    String copy = new String(s.toCharArray());
+    assertFalse(cache.get(copy, out));
+    assertEquals(expected(s, 42), cache.hash(copy));
+
+    StringHashCache other = new StringHashCache(43, 1024);
+    assertEquals(expected(s, 43), other.hash(s));
+
+    cache.clear();
+    assertFalse(cache.get(s, out));
+  }
+
+  public void testBounded() {
+    StringHashCache cache = new StringHashCache(0, 64);
+    String[] strings = new String[1000];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = rsg.randomAscii(1 + r.nextInt(30));
+      assertEquals(expected(strings[i], 0), cache.hash(strings[i]));
+    }
+    int hits = 0;
+    HashCode128 out = new HashCode128();
+    for (String s : strings) {
+      if (cache.get(s, out)) {
+        assertEquals(expected(s, 0), out);
+        hits++;
+      }
+    }
+    assertTrue(hits > 0);
+    assertTrue(hits <= 64);
+  }
+
+  public void testSecondChance() {
+    // single bucket: a hot entry survives a stream of one-off strings
+    StringHashCache cache = new StringHashCache(0, 4);
+    String hot = "hot";
+    HashCode128 out = new HashCode128();
+    cache.hash(hot);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(cache.get(hot, out));
+      cache.hash("cold" + i);
+    }
+  }
+
+  public void testConcurrent() throws Exception {
+    StringHashCache cache = new StringHashCache(7, 256);
+    String[] strings = new String[1000];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = rsg.randomUnicode(r.nextInt(30));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(() -> {
+          Random random = new Random();
+          HashCode128 out = new HashCode128();
+          for (int i = 0; i < 100000; i++) {
+            String s = strings[random.nextInt(strings.length)];
+            assertEquals(expected(s, 7), cache.hash(s, out));
+          }
+        }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static HashCode128 expected(String s, int seed) {
+    HashCode128 result = new HashCode128();
+    MurmurHash3.murmurhash3_x64_128(s, 0, s.length(), seed, null, result);
+    return result;
+  }
+}
@@ -0,0 +1,85 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestStringInterner extends TestCase {
+  private final RandomStringsGenerator rsg = new RandomStringsGenerator();
+
+  public void testIntern() {
+    for (boolean weak : new boolean[]{false, true}) {
+      StringInterner interner = new StringInterner(4, weak);
+      String s = rsg.randomUnicode(20);
+      String canonical = interner.intern(s);
+      assertSame(s, canonical);
+      assertSame(canonical, interner.intern(new String(s.toCharArray())));
+      assertSame(canonical, interner.intern(new StringBuilder(s)));
+      assertSame(canonical, interner.intern("xx" + s + "yy", 2, s.length()));
+      assertSame(interner.intern(""), interner.intern(new StringBuilder()));
+      assertEquals(2, interner.size());
+
+      assertEquals("ab", interner.intern("xaby", 1, 2));
+      assertNotSame(canonical, interner.intern(s + "a"));
+    }
+  }
+
+  public void testGrow() {
+    StringInterner interner = new StringInterner(2, false);
+    List<String> strings = new ArrayList<>();
+    for (int i = 0; i < 100000; i++) {
+      strings.add(interner.intern(Integer.toString(i)));
+    }
+    assertEquals(100000, interner.size());
+    for (int i = 0; i < 100000; i++) {
+      assertSame(strings.get(i), interner.intern(new StringBuilder().append(i)));
+    }
+  }
+
+  public void testWeak() {
+    StringInterner interner = new StringInterner(1, true);
+    String kept = interner.intern(new String("kept"));
+    for (int i = 0; i < 100000; i++) {
+      // garbage, collected entries are reused or dropped on rehash
+      interner.intern(Integer.toString(i));
+    }
+    assertSame(kept, interner.intern("kept"));
+    assertEquals("123", interner.intern(new StringBuilder("123")));
+  }
+
+  public void testConcurrent() throws Exception {
+    StringInterner interner = new StringInterner();
+    String[] strings = new String[10000];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = rsg.randomUnicode(1 + i % 20) + i;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String[]>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(() -> {
+          String[] result = new String[strings.length];
+          for (int i = 0; i < strings.length; i++) {
+            result[i] = interner.intern(new StringBuilder(strings[i]));
+          }
+          return result;
+        }));
+      }
+      String[] first = futures.get(0).get();
+      for (Future<String[]> f : futures) {
+        String[] result = f.get();
+        for (int i = 0; i < strings.length; i++) {
+          assertEquals(strings[i], result[i]);
+          assertSame(first[i], result[i]);
+        }
+      }
+      assertEquals(strings.length, interner.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
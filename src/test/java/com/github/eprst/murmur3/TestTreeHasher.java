@@ -0,0 +1,132 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.github.eprst.murmur3.MurmurHash3.HashCode128;
+
+public class TestTreeHasher extends TestCase {
+  private final Random r = new Random();
+
+  public void testByteBufferX64_128() {
+    for (int len = 0; len < 100; len++) {
+      byte[] b = new byte[len + 7];
+      r.nextBytes(b);
+      int seed = r.nextInt();
+      HashCode128 expected = new HashCode128();
+      MurmurHash3.murmurhash3_x64_128(b, 3, len, seed, expected);
+
+      ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+      direct.put(b);
+      for (ByteBuffer buf : new ByteBuffer[]{ByteBuffer.wrap(b), direct, direct.duplicate().order(ByteOrder.LITTLE_ENDIAN)}) {
+        HashCode128 actual = new HashCode128();
+        MurmurHash3.murmurhash3_x64_128(buf, 3, len, seed, actual);
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
+  public void testReference() {
+    for (int leafSize : new int[]{16, 32, 64, 1024}) {
+      for (int len : new int[]{0, 1, 15, 16, 17, 100, 5 * leafSize, 7 * leafSize + 3, 16 * leafSize}) {
+        byte[] b = new byte[len];
+        r.nextBytes(b);
+        int seed = r.nextInt();
+        HashCode128 expected = reference(b, seed, leafSize);
+        assertEquals(expected, new TreeHasher(seed, leafSize, ForkJoinPool.commonPool()).hash(b));
+      }
+    }
+  }
+
+  public void testThreadCountIndependent() throws Exception {
+    byte[] b = new byte[1000 * 64 + 5];
+    r.nextBytes(b);
+    ForkJoinPool one = new ForkJoinPool(1);
+    ForkJoinPool four = new ForkJoinPool(4);
+    try {
+      assertEquals(new TreeHasher(42, 64, one).hash(b), new TreeHasher(42, 64, four).hash(b));
+    } finally {
+      one.shutdown();
+      four.shutdown();
+    }
+  }
+
+  public void testSources() throws IOException {
+    byte[] b = new byte[3 * TreeHasher.DEFAULT_LEAF_SIZE + 12345];
+    r.nextBytes(b);
+    TreeHasher hasher = new TreeHasher(7);
+    HashCode128 expected = hasher.hash(b);
+    assertFalse(expected.equals(new TreeHasher(8).hash(b)));
+    assertFalse(expected.equals(new TreeHasher(7, 1 << 16, ForkJoinPool.commonPool()).hash(b)));
+
+    byte[] padded = new byte[b.length + 10];
+    System.arraycopy(b, 0, padded, 5, b.length);
+    assertEquals(expected, hasher.hash(padded, 5, b.length));
+
+    ByteBuffer heap = ByteBuffer.wrap(padded, 5, b.length);
+    assertEquals(expected, hasher.hash(heap));
+    assertEquals(5, heap.position());
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(padded.length);
+    direct.put(padded).position(5).limit(5 + b.length);
+    assertEquals(expected, hasher.hash(direct));
+
+    Path file = Files.createTempFile("tree", ".bin");
+    try {
+      Files.write(file, b);
+      assertEquals(expected, hasher.hash(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  public void testEmptyFile() throws IOException {
+    TreeHasher hasher = new TreeHasher(11);
+    Path file = Files.createTempFile("tree", ".bin");
+    try {
+      assertEquals(hasher.hash(new byte[0]), hasher.hash(file));
+      assertEquals(hasher.hash(new byte[0]), hasher.hash(ByteBuffer.allocateDirect(0)));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  public void testBadLeafSize() {
+    for (int leafSize : new int[]{0, 8, 100, -16}) {
+      try {
+        new TreeHasher(0, leafSize, ForkJoinPool.commonPool());
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  /** Straightforward recursive definition of the tree hash */
+  private static HashCode128 reference(byte[] b, int seed, int leafSize) {
+    int numLeaves = Math.max(1, (b.length + leafSize - 1) / leafSize);
+    HashCode128[] level = new HashCode128[numLeaves];
+    for (int i = 0; i < numLeaves; i++) {
+      level[i] = new HashCode128();
+      int offset = i * leafSize;
+      MurmurHash3.murmurhash3_x64_128(b, offset, Math.min(leafSize, b.length - offset), seed, level[i]);
+    }
+    while (level.length > 1) {
+      HashCode128[] next = new HashCode128[(level.length + 1) / 2];
+      for (int i = 0; i < next.length; i++) {
+        next[i] = 2 * i + 1 < level.length
+                  ? new HashingSink128(seed).putMurmurHash3(level[2 * i]).putMurmurHash3(level[2 * i + 1]).finish()
+                  : level[2 * i];
+      }
+      level = next;
+    }
+    return new HashingSink128(seed).putByte(TreeHasher.VERSION).putInt(leafSize).putLong(b.length)
+        .putMurmurHash3(level[0]).finish();
+  }
+}
@@ -0,0 +1,79 @@
+package com.github.eprst.murmur3;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TestUnorderedHasher extends TestCase {
+  private final Random r = new Random();
+
+  public void testOrderIndependent() {
+    RandomStringsGenerator rsg = new RandomStringsGenerator();
+    List<String> strings = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      strings.add(rsg.randomUnicode(r.nextInt(20)));
+    }
+    int seed = r.nextInt();
+
+    MurmurHash3.HashCode128 sequential =
+        strings.stream().collect(UnorderedHasher.collector(UnorderedHasher.utf8(seed), seed));
+    Collections.shuffle(strings, r);
+    MurmurHash3.HashCode128 parallel =
+        strings.parallelStream().collect(UnorderedHasher.collector(UnorderedHasher.utf8(seed), seed));
+    assertEquals(sequential, parallel);
+
+    UnorderedHasher manual = new UnorderedHasher(seed);
+    for (String s : strings) {
+      manual.add(s, UnorderedHasher.utf8(seed));
+    }
+    assertEquals(strings.size(), manual.count());
+    assertEquals(sequential, manual.finish());
+
+    strings.add(strings.get(0));
+    assertFalse(sequential.equals(
+        strings.stream().collect(UnorderedHasher.collector(UnorderedHasher.utf8(seed), seed))));
+  }
+
+  public void testCarry() {
+    // low halves overflow, high halves are different
+    UnorderedHasher a = new UnorderedHasher(0).add(-1L, 0).add(1L, 0);
+    UnorderedHasher b = new UnorderedHasher(0).add(0, 0).add(0, 1);
+    assertEquals(a.finish(), b.finish());
+
+    UnorderedHasher c = new UnorderedHasher(0).add(-1L, 0);
+    UnorderedHasher d = new UnorderedHasher(0).add(1L, 0);
+    assertEquals(a.finish(), c.combine(d).finish());
+  }
+
+  public void testMap() {
+    Map<Long, Long> map = new HashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put(r.nextLong(), r.nextLong());
+    }
+    UnorderedHasher.ElementHasher<Map.Entry<Long, Long>> entryHasher =
+        (e, out) -> new HashingSink128(1).putLong(e.getKey()).putLong(e.getValue()).finish(out);
+
+    MurmurHash3.HashCode128 h1 = map.entrySet().parallelStream().collect(UnorderedHasher.collector(entryHasher, 1));
+    MurmurHash3.HashCode128 h2 =
+        new HashMap<>(map).entrySet().stream().collect(UnorderedHasher.collector(entryHasher, 1));
+    assertEquals(h1, h2);
+
+    map.put(map.keySet().iterator().next(), 42L);
+    assertFalse(h1.equals(map.entrySet().stream().collect(UnorderedHasher.collector(entryHasher, 1))));
+  }
+
+  public void testLongs() {
+    UnorderedHasher.ElementHasher<Long> longs = UnorderedHasher.longs(-3);
+    MurmurHash3.HashCode128 actual = new MurmurHash3.HashCode128();
+    for (int i = 0; i < 100; i++) {
+      long l = r.nextLong();
+      longs.hash(l, actual);
+      assertEquals(new HashingSink128(-3).putLong(l).finish(), actual);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.github.eprst.murmur3;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestHashingEvents extends TestCase {
+  private static final String EVENT = "com.github.eprst.murmur3.Hashing";
+  private static final int THRESHOLD = (int) HashingEvents.THRESHOLD;
+
+  public void testSink() throws Exception {
+    byte[] data = new byte[THRESHOLD + 5];
+    List<RecordedEvent> events = record(() -> {
+      HashingSink128 sink = new HashingSink128(1);
+      sink.putBytes(data, 0, THRESHOLD - 1).finish();
+      // idle time of a pooled sink is not hashing
+      Thread.sleep(500);
+      sink.putBytes(data, 0, THRESHOLD).finish();
+      sink.putBytes(data, 0, data.length).finish();
+      sink.putLongs(new long[THRESHOLD / 8], 0, THRESHOLD / 8).finish();
+      // timing covers the whole hash, starting at the first block
+      sink.putBytes(data, 0, 16);
+      Thread.sleep(300);
+      sink.putBytes(data, 0, THRESHOLD).finish();
+    });
+    assertEquals(4, events.size());
+    for (RecordedEvent event : events) {
+      assertEquals("HashingSink128.finish", event.getString("entryPoint"));
+    }
+    for (int i = 0; i < 3; i++) {
+      assertTrue(events.get(i).getDuration().compareTo(Duration.ofMillis(500)) < 0);
+    }
+    assertTrue(events.get(3).getDuration().compareTo(Duration.ofMillis(300)) >= 0);
+    assertEquals(THRESHOLD, events.get(0).getLong("bytes"));
+    assertEquals(data.length, events.get(1).getLong("bytes"));
+    assertEquals(THRESHOLD, events.get(2).getLong("bytes"));
+    assertEquals(THRESHOLD + 16, events.get(3).getLong("bytes"));
+  }
+
+  public void testEntryPoints() throws Exception {
+    byte[] data = new byte[3 * THRESHOLD];
+    List<RecordedEvent> events = record(() -> {
+      MurmurHash3.murmurhash3_x64_128(ByteBuffer.wrap(data), 0, THRESHOLD - 1, 0, new MurmurHash3.HashCode128());
+      MurmurHash3.murmurhash3_x64_128(ByteBuffer.wrap(data), 0, THRESHOLD, 0, new MurmurHash3.HashCode128());
+      // a single event for the whole tree, not one per leaf
+      new TreeHasher(0, 1024, ForkJoinPool.commonPool()).hash(data);
+    });
+    assertEquals(2, events.size());
+    assertEquals("MurmurHash3.murmurhash3_x64_128(ByteBuffer)", events.get(0).getString("entryPoint"));
+    assertEquals(THRESHOLD, events.get(0).getLong("bytes"));
+    assertEquals("TreeHasher.hash(byte[])", events.get(1).getString("entryPoint"));
+    assertEquals(data.length, events.get(1).getLong("bytes"));
+  }
+
+  private interface Action {
+    void run() throws Exception;
+  }
+
+  /** Runs {@code action} while recording, returns hashing events in commit order */
+  private static List<RecordedEvent> record(Action action) throws Exception {
+    Path file = Files.createTempFile("murmur3", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(EVENT).withThreshold(Duration.ZERO);
+      recording.start();
+      action.run();
+      recording.stop();
+      recording.dump(file);
+      return read(file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static List<RecordedEvent> read(Path file) throws IOException {
+    List<RecordedEvent> events = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      if (event.getEventType().getName().equals(EVENT)) {
+        events.add(event);
+      }
+    }
+    events.sort((a, b) -> a.getEndTime().compareTo(b.getEndTime()));
+    return events;
+  }
+}